@@ -1,34 +1,152 @@
 package org.example.userservice;
 
+import org.example.userservice.batch.BatchRunner;
+import org.example.userservice.dao.JfrUserDao;
+import org.example.userservice.dao.ResilientUserDao;
+import org.example.userservice.dao.UserDaoImpl;
+import org.example.userservice.http.UserHttpServer;
+import org.example.userservice.maintenance.UserPartitionManager;
+import org.example.userservice.maintenance.UserPurgeJob;
+import org.example.userservice.service.AdmissionControlledUserService;
 import org.example.userservice.service.UserService;
 import org.example.userservice.model.User;
 import org.example.userservice.util.HibernateUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
 
 public class Main {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
     private static final UserService userService = new UserService();
     private static final Scanner scanner = new Scanner(System.in);
+    private static final int DEFAULT_HTTP_PORT = 8080;
+    private static final int DEFAULT_BATCH_CONCURRENCY = 4;
+    private static final int DEFAULT_PURGE_CHUNK_SIZE = 500;
+    private static final Duration DEFAULT_BATCH_CALL_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration PARTITION_MAINTENANCE_INTERVAL = Duration.ofHours(6);
 
     public static void main(String[] args) {
         logger.info("Starting User Service application");
 
+        if (args.length > 0 && "serve".equals(args[0])) {
+            serve(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_HTTP_PORT);
+            return;
+        }
+        if (args.length > 0 && "batch".equals(args[0])) {
+            System.exit(batch(args.length > 1 ? args[1] : "-",
+                    args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_BATCH_CONCURRENCY));
+        }
+        if (args.length > 1 && "purge".equals(args[0])) {
+            System.exit(purge(LocalDate.parse(args[1]).atStartOfDay(),
+                    args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PURGE_CHUNK_SIZE,
+                    args.length > 3 ? Long.valueOf(args[3]) : null));
+        }
+
+        UserPartitionManager partitions = startPartitionMaintenance();
         try {
             showMenu();
         } catch (Exception e) {
             logger.error("Application error: {}", e.getMessage());
             System.err.println("Critical error: " + e.getMessage());
         } finally {
+            partitions.close();
             HibernateUtil.shutdown();
             scanner.close();
             logger.info("User Service application stopped");
         }
     }
 
+    // Режим HTTP-сервера: java ... Main serve [порт]
+    private static void serve(int port) {
+        UserService httpUserService = new AdmissionControlledUserService(
+                new ResilientUserDao(new JfrUserDao(new UserDaoImpl())));
+        CountDownLatch stopped = new CountDownLatch(1);
+        UserPartitionManager partitions = startPartitionMaintenance();
+        try {
+            UserHttpServer server = new UserHttpServer(httpUserService, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                partitions.close();
+                HibernateUtil.shutdown();
+                stopped.countDown();
+                logger.info("User Service application stopped");
+            }));
+            server.start();
+            System.out.println("HTTP server started on port " + server.port() + ", press Ctrl+C to stop");
+            stopped.await();
+        } catch (IOException e) {
+            logger.error("Failed to start HTTP server: {}", e.getMessage());
+            System.err.println("Critical error: " + e.getMessage());
+            partitions.close();
+            HibernateUtil.shutdown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Пакетный режим: java ... Main batch [файл|-] [параллельность]; код выхода 1, если были ошибки
+    private static int batch(String source, int concurrency) {
+        UserService batchUserService = new UserService(
+                new ResilientUserDao(new JfrUserDao(new UserDaoImpl())), DEFAULT_BATCH_CALL_TIMEOUT, Map.of());
+        UserPartitionManager partitions = startPartitionMaintenance();
+        try (BufferedReader in = "-".equals(source)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(source), StandardCharsets.UTF_8)) {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 64 * 1024);
+            BatchRunner.Summary summary = new BatchRunner(batchUserService, concurrency).run(in, out);
+            return summary.failed() == 0 ? 0 : 1;
+        } catch (IOException e) {
+            logger.error("Batch failed: {}", e.getMessage());
+            System.err.println("Critical error: " + e.getMessage());
+            return 2;
+        } finally {
+            partitions.close();
+            HibernateUtil.shutdown();
+        }
+    }
+
+    // Очистка: java ... Main purge <дата> [размер-пачки] [после-id]; код выхода 1, если не успели за отведённое время
+    private static int purge(LocalDateTime before, int chunkSize, Long resumeAfterId) {
+        UserPurgeJob job = new UserPurgeJob(new JfrUserDao(new UserDaoImpl()), chunkSize, Duration.ofMillis(100), Duration.ofHours(1));
+        try {
+            UserPurgeJob.Result result = job.purgeCreatedBefore(before, resumeAfterId, progress ->
+                    System.out.println("deleted=" + progress.deleted() + " chunks=" + progress.chunks()
+                            + " checkpoint=" + progress.checkpoint()));
+            System.out.println("# deleted=" + result.deleted() + " elapsedMs=" + result.elapsed().toMillis()
+                    + (result.completed() ? " completed" : " resumeAfterId=" + result.checkpoint()));
+            return result.completed() ? 0 : 1;
+        } catch (Exception e) {
+            logger.error("Purge failed: {}", e.getMessage());
+            System.err.println("Critical error: " + e.getMessage());
+            return 2;
+        } finally {
+            HibernateUtil.shutdown();
+        }
+    }
+
+    // Секции создаются заранее, пока процесс работает; иначе строки новых месяцев копятся в users_default
+    private static UserPartitionManager startPartitionMaintenance() {
+        UserPartitionManager partitions = new UserPartitionManager();
+        partitions.start(PARTITION_MAINTENANCE_INTERVAL);
+        return partitions;
+    }
+
     private static void showMenu() {
         while (true) {
             System.out.println("\n=== User Service ===");
@@ -0,0 +1,427 @@
+package org.example.userservice.analytics;
+
+import org.example.userservice.util.HibernateUtil;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.query.SelectionQuery;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.BinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Неизменяемый колоночный снимок таблицы user_service.users для аналитики в памяти.
+ * <p>
+ * Каждая колонка — примитивный массив: id ({@code long}), возраст ({@code int}),
+ * created_at в секундах эпохи UTC ({@code long}), имя — код в словаре, email — UTF-8 байты
+ * с массивом смещений. Это около 28 байт на строку плюс байты email против 200+ у {@code List<User>}.
+ * Сканирования режутся на блоки и идут параллельно по ядрам.
+ * <p>
+ * {@link #refresh()} дочитывает новые регистрации: строки с id больше водяного знака и строки,
+ * созданные не раньше чем за {@link #REFRESH_OVERLAP} до самой поздней загруженной. Перекрытие
+ * нужно, потому что id выдаются блоками: строка с меньшим id может закоммититься позже строки
+ * с большим. Пропущена будет только строка, закоммиченная позже перекрытия после своего
+ * created_at (или вставленная с created_at в прошлом). Изменения и удаления старых строк
+ * подхватывает только полная {@link #load()}.
+ */
+public final class UserColumnarSnapshot {
+    public static final int NULL_AGE = Integer.MIN_VALUE;
+    public static final long NULL_CREATED_AT = Long.MIN_VALUE;
+
+    public static final Duration REFRESH_OVERLAP = Duration.ofMinutes(10);
+
+    private static final int FETCH_SIZE = 5_000;
+    private static final int SCAN_CHUNK_SIZE = 64 * 1024;
+
+    private final int size;
+    private final long[] ids;
+    private final int[] ages;
+    private final long[] createdAtEpochSeconds;
+    private final int[] nameCodes;
+    private final String[] nameDictionary;
+    private final byte[] emailBytes;
+    private final int[] emailOffsets;
+    private final long newestCreatedAt;
+
+    private UserColumnarSnapshot(Builder builder) {
+        this.size = builder.size;
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.ages = Arrays.copyOf(builder.ages, size);
+        this.createdAtEpochSeconds = Arrays.copyOf(builder.createdAt, size);
+        this.nameCodes = Arrays.copyOf(builder.nameCodes, size);
+        this.nameDictionary = builder.dictionary.toArray();
+        this.emailBytes = Arrays.copyOf(builder.emailBytes, builder.emailLength);
+        this.emailOffsets = Arrays.copyOf(builder.emailOffsets, size + 1);
+        this.newestCreatedAt = Arrays.stream(createdAtEpochSeconds).max().orElse(NULL_CREATED_AT);
+    }
+
+    /**
+     * Полностью читает таблицу потоком, не поднимая сущности.
+     */
+    public static UserColumnarSnapshot load() {
+        Builder builder = builder();
+        stream(builder, 0L, null);
+        return builder.build();
+    }
+
+    /**
+     * Новый снимок: текущие строки плюс строки с id больше {@link #watermark()} и недостающие
+     * строки из окна {@link #REFRESH_OVERLAP}.
+     */
+    public UserColumnarSnapshot refresh() {
+        LocalDateTime since = newestCreatedAt == NULL_CREATED_AT
+                ? null
+                : LocalDateTime.ofEpochSecond(newestCreatedAt, 0, ZoneOffset.UTC).minus(REFRESH_OVERLAP);
+        Builder delta = builder();
+        stream(delta, watermark(), since);
+        return merge(delta.build());
+    }
+
+    /**
+     * Добавляет строки {@code delta}, которых ещё нет в снимке; уже загруженные id пропускаются.
+     */
+    UserColumnarSnapshot merge(UserColumnarSnapshot delta) {
+        int[] missing = IntStream.range(0, delta.size)
+                .filter(row -> Arrays.binarySearch(ids, 0, size, delta.ids[row]) < 0)
+                .toArray();
+        if (missing.length == 0) {
+            return this;
+        }
+        if (delta.ids[missing[0]] > watermark()) {
+            // Обычный случай: только хвост, дописываем к копии колонок
+            Builder builder = new Builder(this);
+            for (int row : missing) {
+                builder.copy(delta, row);
+            }
+            return builder.build();
+        }
+        Builder builder = builder();
+        int own = 0;
+        for (int row : missing) {
+            while (own < size && ids[own] < delta.ids[row]) {
+                builder.copy(this, own++);
+            }
+            builder.copy(delta, row);
+        }
+        while (own < size) {
+            builder.copy(this, own++);
+        }
+        return builder.build();
+    }
+
+    private static void stream(Builder builder, long afterId, LocalDateTime createdSince) {
+        String where = createdSince == null
+                ? "WHERE u.id > :afterId"
+                : "WHERE u.id > :afterId OR u.createdAt >= :createdSince";
+        try (StatelessSession session = HibernateUtil.openStatelessSession()) {
+            // Курсор PostgreSQL с fetch size работает только внутри транзакции
+            Transaction transaction = session.beginTransaction();
+            SelectionQuery<Object[]> query = session.createSelectionQuery(
+                    "SELECT u.id, u.age, u.createdAt, u.name, u.email FROM User u " + where + " ORDER BY u.id",
+                    Object[].class);
+            query.setParameter("afterId", afterId);
+            if (createdSince != null) {
+                query.setParameter("createdSince", createdSince);
+            }
+            try (ScrollableResults<Object[]> rows = query
+                    .setFetchSize(FETCH_SIZE)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (rows.next()) {
+                    Object[] row = rows.get();
+                    builder.add((Long) row[0], (Integer) row[1], (LocalDateTime) row[2],
+                            (String) row[3], (String) row[4]);
+                }
+            }
+            transaction.commit();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load user snapshot", e);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder(null);
+    }
+
+    // ============ COLUMNS ============
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Наибольший загруженный id — точка продолжения для {@link #refresh()}.
+     */
+    public long watermark() {
+        return size == 0 ? 0L : ids[size - 1];
+    }
+
+    public long id(int row) {
+        return ids[row];
+    }
+
+    public int age(int row) {
+        return ages[row];
+    }
+
+    public long createdAtEpochSecond(int row) {
+        return createdAtEpochSeconds[row];
+    }
+
+    public String name(int row) {
+        return nameDictionary[nameCodes[row]];
+    }
+
+    public String email(int row) {
+        int start = emailOffsets[row];
+        return new String(emailBytes, start, emailOffsets[row + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    // ============ FILTERS ============
+
+    public IntPredicate all() {
+        return row -> true;
+    }
+
+    public IntPredicate ageBetween(int minInclusive, int maxInclusive) {
+        return row -> ages[row] != NULL_AGE && ages[row] >= minInclusive && ages[row] <= maxInclusive;
+    }
+
+    public IntPredicate createdBetween(LocalDateTime fromInclusive, LocalDateTime toExclusive) {
+        long from = fromInclusive.toEpochSecond(ZoneOffset.UTC);
+        long to = toExclusive.toEpochSecond(ZoneOffset.UTC);
+        return row -> createdAtEpochSeconds[row] != NULL_CREATED_AT
+                && createdAtEpochSeconds[row] >= from && createdAtEpochSeconds[row] < to;
+    }
+
+    /**
+     * Сравнение по коду словаря: строки при сканировании не декодируются.
+     */
+    public IntPredicate nameEquals(String name) {
+        int code = Arrays.asList(nameDictionary).indexOf(name);
+        return code < 0 ? row -> false : row -> nameCodes[row] == code;
+    }
+
+    // ============ AGGREGATES ============
+
+    public long count(IntPredicate filter) {
+        return IntStream.range(0, chunkCount()).parallel()
+                .mapToLong(chunk -> {
+                    long count = 0;
+                    for (int row = chunkStart(chunk), end = chunkEnd(chunk); row < end; row++) {
+                        if (filter.test(row)) {
+                            count++;
+                        }
+                    }
+                    return count;
+                })
+                .sum();
+    }
+
+    /**
+     * Средний возраст среди строк фильтра с заданным возрастом; {@code NaN}, если таких нет.
+     */
+    public double averageAge(IntPredicate filter) {
+        long[] sumAndCount = scan(() -> new long[2], (acc, row) -> {
+            if (ages[row] != NULL_AGE) {
+                acc[0] += ages[row];
+                acc[1]++;
+            }
+        }, (a, b) -> {
+            a[0] += b[0];
+            a[1] += b[1];
+            return a;
+        }, filter);
+        return sumAndCount[1] == 0 ? Double.NaN : (double) sumAndCount[0] / sumAndCount[1];
+    }
+
+    /**
+     * Гистограмма возрастов: элемент i — число строк с возрастом в [i * width, (i + 1) * width).
+     */
+    public long[] ageHistogram(int bucketWidth, IntPredicate filter) {
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("Bucket width must be positive");
+        }
+        int buckets = 121 / bucketWidth + 1;
+        return scan(() -> new long[buckets], (acc, row) -> {
+            int age = ages[row];
+            if (age != NULL_AGE && age >= 0) {
+                acc[Math.min(age / bucketWidth, buckets - 1)]++;
+            }
+        }, (a, b) -> {
+            for (int i = 0; i < a.length; i++) {
+                a[i] += b[i];
+            }
+            return a;
+        }, filter);
+    }
+
+    /**
+     * Когорты по месяцу регистрации.
+     */
+    public SortedMap<YearMonth, Long> countByCreatedMonth(IntPredicate filter) {
+        Map<Long, long[]> byMonth = scan(HashMap::new, (acc, row) -> {
+            long seconds = createdAtEpochSeconds[row];
+            if (seconds != NULL_CREATED_AT) {
+                LocalDateTime createdAt = LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+                long monthKey = createdAt.getYear() * 12L + createdAt.getMonthValue() - 1;
+                acc.computeIfAbsent(monthKey, key -> new long[1])[0]++;
+            }
+        }, (a, b) -> {
+            b.forEach((month, count) -> a.computeIfAbsent(month, key -> new long[1])[0] += count[0]);
+            return a;
+        }, filter);
+
+        SortedMap<YearMonth, Long> result = new TreeMap<>();
+        byMonth.forEach((monthKey, count) ->
+                result.put(YearMonth.of((int) (monthKey / 12), (int) (monthKey % 12) + 1), count[0]));
+        return result;
+    }
+
+    private <A> A scan(Supplier<A> identity, ObjIntConsumer<A> accumulate,
+                       BinaryOperator<A> combine, IntPredicate filter) {
+        return IntStream.range(0, chunkCount()).parallel()
+                .mapToObj(chunk -> {
+                    A acc = identity.get();
+                    for (int row = chunkStart(chunk), end = chunkEnd(chunk); row < end; row++) {
+                        if (filter.test(row)) {
+                            accumulate.accept(acc, row);
+                        }
+                    }
+                    return acc;
+                })
+                .reduce(combine)
+                .orElseGet(identity);
+    }
+
+    private int chunkCount() {
+        return (size + SCAN_CHUNK_SIZE - 1) / SCAN_CHUNK_SIZE;
+    }
+
+    private static int chunkStart(int chunk) {
+        return chunk * SCAN_CHUNK_SIZE;
+    }
+
+    private int chunkEnd(int chunk) {
+        return Math.min(size, (chunk + 1) * SCAN_CHUNK_SIZE);
+    }
+
+    /**
+     * Накопитель строк. Строки должны добавляться по возрастанию id.
+     */
+    public static final class Builder {
+        private int size;
+        private long[] ids;
+        private int[] ages;
+        private long[] createdAt;
+        private int[] nameCodes;
+        private final Dictionary dictionary = new Dictionary();
+        private byte[] emailBytes;
+        private int emailLength;
+        private int[] emailOffsets;
+
+        private Builder(UserColumnarSnapshot base) {
+            if (base == null) {
+                ids = new long[1024];
+                ages = new int[1024];
+                createdAt = new long[1024];
+                nameCodes = new int[1024];
+                emailBytes = new byte[16 * 1024];
+                emailOffsets = new int[1025];
+                return;
+            }
+            size = base.size;
+            int capacity = Math.max(1024, size + size / 4);
+            ids = Arrays.copyOf(base.ids, capacity);
+            ages = Arrays.copyOf(base.ages, capacity);
+            createdAt = Arrays.copyOf(base.createdAtEpochSeconds, capacity);
+            nameCodes = Arrays.copyOf(base.nameCodes, capacity);
+            for (String name : base.nameDictionary) {
+                dictionary.code(name);
+            }
+            emailLength = base.emailBytes.length;
+            emailBytes = Arrays.copyOf(base.emailBytes, Math.max(16 * 1024, emailLength + emailLength / 4));
+            emailOffsets = Arrays.copyOf(base.emailOffsets, capacity + 1);
+        }
+
+        public Builder add(long id, Integer age, LocalDateTime createdAtValue, String name, String email) {
+            return append(id, age == null ? NULL_AGE : age,
+                    createdAtValue == null ? NULL_CREATED_AT : createdAtValue.toEpochSecond(ZoneOffset.UTC),
+                    name, email.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void copy(UserColumnarSnapshot source, int row) {
+            append(source.ids[row], source.ages[row], source.createdAtEpochSeconds[row], source.name(row),
+                    Arrays.copyOfRange(source.emailBytes, source.emailOffsets[row], source.emailOffsets[row + 1]));
+        }
+
+        private Builder append(long id, int age, long createdAtSeconds, String name, byte[] encoded) {
+            if (size > 0 && id <= ids[size - 1]) {
+                throw new IllegalArgumentException("Rows must be added in ascending id order");
+            }
+            if (size == ids.length) {
+                int capacity = ids.length * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                createdAt = Arrays.copyOf(createdAt, capacity);
+                nameCodes = Arrays.copyOf(nameCodes, capacity);
+                emailOffsets = Arrays.copyOf(emailOffsets, capacity + 1);
+            }
+
+            ids[size] = id;
+            ages[size] = age;
+            createdAt[size] = createdAtSeconds;
+            nameCodes[size] = dictionary.code(name);
+
+            if (emailLength + encoded.length > emailBytes.length) {
+                emailBytes = Arrays.copyOf(emailBytes, Math.max(emailBytes.length * 2, emailLength + encoded.length));
+            }
+            System.arraycopy(encoded, 0, emailBytes, emailLength, encoded.length);
+            emailLength += encoded.length;
+            emailOffsets[size + 1] = emailLength;
+
+            size++;
+            return this;
+        }
+
+        public UserColumnarSnapshot build() {
+            return new UserColumnarSnapshot(this);
+        }
+    }
+
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private String[] values = new String[256];
+
+        int code(String value) {
+            Integer existing = codes.get(value);
+            if (existing != null) {
+                return existing;
+            }
+            int code = codes.size();
+            if (code == values.length) {
+                values = Arrays.copyOf(values, code * 2);
+            }
+            values[code] = value;
+            codes.put(value, code);
+            return code;
+        }
+
+        String[] toArray() {
+            return Arrays.copyOf(values, codes.size());
+        }
+    }
+}
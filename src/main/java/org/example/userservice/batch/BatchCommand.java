@@ -0,0 +1,167 @@
+package org.example.userservice.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Команда пакетного режима. Строка — либо текст вида
+ * <pre>
+ * create "John Doe" john@example.com 25
+ * get 5
+ * update 5 name="New Name" email=new@example.com age=30
+ * delete 5
+ * </pre>
+ * либо объект NDJSON: {@code {"op":"update","id":5,"age":30}}. Пустые строки и строки
+ * с {@code #} в начале пропускаются ({@link #parse} возвращает null).
+ */
+public record BatchCommand(int line, Operation operation, Long id, String name, String email, Integer age) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public enum Operation {
+        CREATE, GET, UPDATE, DELETE
+    }
+
+    /**
+     * Ключ упорядочивания: команды с одинаковым ключом выполняются строго по порядку.
+     */
+    public Object orderingKey() {
+        return operation == Operation.CREATE ? email.trim().toLowerCase(Locale.ROOT) : id;
+    }
+
+    public static BatchCommand parse(int line, String text) {
+        String trimmed = text.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return null;
+        }
+        return trimmed.startsWith("{") ? parseJson(line, trimmed) : parseText(line, trimmed);
+    }
+
+    private static BatchCommand parseJson(int line, String text) {
+        JsonNode node;
+        try {
+            node = MAPPER.readTree(text);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid JSON command: " + e.getMessage());
+        }
+        Operation operation = operation(node.path("op").asText(null));
+        return build(line, operation,
+                node.hasNonNull("id") ? node.get("id").asText() : null,
+                textOrNull(node, "name"),
+                textOrNull(node, "email"),
+                node.hasNonNull("age") ? node.get("age").asText() : null);
+    }
+
+    private static BatchCommand parseText(int line, String text) {
+        List<String> tokens = tokenize(text);
+        Operation operation = operation(tokens.get(0));
+        if (operation == Operation.CREATE) {
+            if (tokens.size() != 4) {
+                throw new IllegalArgumentException("Expected: create <name> <email> <age>");
+            }
+            return build(line, operation, null, tokens.get(1), tokens.get(2), tokens.get(3));
+        }
+        if (tokens.size() < 2) {
+            throw new IllegalArgumentException("Expected: " + tokens.get(0) + " <id>");
+        }
+        String name = null;
+        String email = null;
+        String age = null;
+        for (String token : tokens.subList(2, tokens.size())) {
+            int eq = token.indexOf('=');
+            if (operation != Operation.UPDATE || eq < 0) {
+                throw new IllegalArgumentException("Unexpected argument: " + token);
+            }
+            String value = token.substring(eq + 1);
+            switch (token.substring(0, eq)) {
+                case "name" -> name = value;
+                case "email" -> email = value;
+                case "age" -> age = value;
+                default -> throw new IllegalArgumentException("Unknown field: " + token.substring(0, eq));
+            }
+        }
+        return build(line, operation, tokens.get(1), name, email, age);
+    }
+
+    private static BatchCommand build(int line, Operation operation, String id, String name, String email,
+                                      String age) {
+        Long parsedId = null;
+        if (operation != Operation.CREATE) {
+            if (id == null) {
+                throw new IllegalArgumentException("ID is required for " + operation.name().toLowerCase(Locale.ROOT));
+            }
+            parsedId = parseNumber(id, "ID").longValue();
+        } else if (email == null) {
+            throw new IllegalArgumentException("Email is required for create");
+        }
+        Integer parsedAge = age == null || age.isEmpty() ? null : parseInt(age, "age");
+        return new BatchCommand(line, operation, parsedId, name, email, parsedAge);
+    }
+
+    private static Operation operation(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Operation is required");
+        }
+        try {
+            return Operation.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown operation: " + value);
+        }
+    }
+
+    private static Long parseNumber(String value, String field) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+
+    // intValue() молча обрезал бы значения вне int
+    private static Integer parseInt(String value, String field) {
+        long parsed = parseNumber(value, field);
+        if (parsed < Integer.MIN_VALUE || parsed > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+        return (int) parsed;
+    }
+
+    private static String textOrNull(JsonNode node, String field) {
+        return node.hasNonNull(field) ? node.get(field).asText() : null;
+    }
+
+    // Разбивает по пробелам; двойные кавычки объединяют слова (в том числе после "поле=")
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        boolean hasToken = false;
+        for (char c : text.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+                hasToken = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (hasToken) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                    hasToken = false;
+                }
+            } else {
+                current.append(c);
+                hasToken = true;
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quote");
+        }
+        if (hasToken) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,180 @@
+package org.example.userservice.batch;
+
+import org.example.userservice.model.User;
+import org.example.userservice.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пакетное выполнение команд без диалога.
+ * <p>
+ * Команды раскладываются по {@code concurrency} однопоточным «полосам» по ключу
+ * ({@link BatchCommand#orderingKey()}): команды об одном пользователе выполняются по порядку,
+ * независимые — параллельно. Вход читается потоково, число принятых, но не выполненных команд
+ * ограничено. Результаты пишутся строками {@code <строка>\t<статус>\t<операция>\t<детали>}
+ * в порядке завершения; запись буферизована, сброс — в конце.
+ */
+public class BatchRunner {
+    private static final Logger logger = LoggerFactory.getLogger(BatchRunner.class);
+
+    private static final int MAX_PENDING_PER_LANE = 256;
+
+    public record Summary(long commands, long succeeded, long notFound, long failed, Duration elapsed) {
+        public double throughputPerSecond() {
+            double seconds = elapsed.toNanos() / 1_000_000_000.0;
+            return seconds == 0 ? 0 : commands / seconds;
+        }
+    }
+
+    private final UserService userService;
+    private final int concurrency;
+
+    public BatchRunner(UserService userService, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be positive. Received: " + concurrency);
+        }
+        this.userService = userService;
+        this.concurrency = concurrency;
+    }
+
+    public Summary run(BufferedReader in, Writer out) throws IOException {
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong notFound = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long commands = 0;
+        long start = System.nanoTime();
+
+        Semaphore pending = new Semaphore(concurrency * MAX_PENDING_PER_LANE);
+        ExecutorService[] lanes = new ExecutorService[concurrency];
+        AtomicInteger threadCounter = new AtomicInteger();
+        for (int i = 0; i < concurrency; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "user-batch-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        try {
+            String text;
+            int line = 0;
+            while ((text = in.readLine()) != null) {
+                line++;
+                BatchCommand command;
+                try {
+                    command = BatchCommand.parse(line, text);
+                } catch (IllegalArgumentException e) {
+                    commands++;
+                    failed.incrementAndGet();
+                    write(out, line, "ERROR", "parse", e.getMessage());
+                    continue;
+                }
+                if (command == null) {
+                    continue;
+                }
+                commands++;
+
+                acquire(pending);
+                int lane = Math.floorMod(command.orderingKey().hashCode(), concurrency);
+                lanes[lane].execute(() -> {
+                    try {
+                        execute(command, out, succeeded, notFound, failed);
+                    } finally {
+                        pending.release();
+                    }
+                });
+            }
+        } finally {
+            for (ExecutorService lane : lanes) {
+                lane.shutdown();
+            }
+            for (ExecutorService lane : lanes) {
+                awaitTermination(lane);
+            }
+        }
+
+        Summary summary = new Summary(commands, succeeded.get(), notFound.get(), failed.get(),
+                Duration.ofNanos(System.nanoTime() - start));
+        synchronized (out) {
+            out.write(String.format("# commands=%d succeeded=%d notFound=%d failed=%d elapsedMs=%d throughput=%.1f/s%n",
+                    summary.commands(), summary.succeeded(), summary.notFound(), summary.failed(),
+                    summary.elapsed().toMillis(), summary.throughputPerSecond()));
+            out.flush();
+        }
+        logger.info("Batch finished: {} commands, {} failed", summary.commands(), summary.failed());
+        return summary;
+    }
+
+    private void execute(BatchCommand command, Writer out, AtomicLong succeeded, AtomicLong notFound,
+                         AtomicLong failed) {
+        String operation = command.operation().name().toLowerCase(Locale.ROOT);
+        try {
+            String detail = switch (command.operation()) {
+                case CREATE -> String.valueOf(userService.createUser(command.name(), command.email(), command.age()));
+                case GET -> {
+                    Optional<User> user = userService.getUserById(command.id());
+                    yield user.map(User::toString).orElse(null);
+                }
+                case UPDATE -> userService.updateUser(command.id(), command.name(), command.email(), command.age())
+                        ? String.valueOf(command.id()) : null;
+                case DELETE -> userService.deleteUser(command.id()) ? String.valueOf(command.id()) : null;
+            };
+            if (detail == null) {
+                notFound.incrementAndGet();
+                write(out, command.line(), "NOT_FOUND", operation, String.valueOf(command.id()));
+            } else {
+                succeeded.incrementAndGet();
+                write(out, command.line(), "OK", operation, detail);
+            }
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            write(out, command.line(), "ERROR", operation, e.getMessage());
+        }
+    }
+
+    private static void write(Writer out, int line, String status, String operation, String detail) {
+        // Табуляции и переводы строк в деталях сломали бы построчный формат
+        String safeDetail = detail == null ? "" : detail.replace('\t', ' ').replace('\n', ' ');
+        synchronized (out) {
+            try {
+                out.write(line + "\t" + status + "\t" + operation + "\t" + safeDetail + "\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static void acquire(Semaphore pending) {
+        try {
+            pending.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while submitting batch command", e);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService lane) {
+        try {
+            while (!lane.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.info("Waiting for batch commands to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            lane.shutdownNow();
+        }
+    }
+}
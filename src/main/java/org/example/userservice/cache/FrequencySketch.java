@@ -0,0 +1,75 @@
+package org.example.userservice.cache;
+
+/**
+ * Приближённый счётчик частот (count-min sketch) для решения о допуске в {@link WTinyLfuCache}.
+ * <p>
+ * Четыре строки насыщающихся 4-битных счётчиков, упакованных по 16 в long. После
+ * {@code 10 * maximumSize} инкрементов все счётчики делятся пополам — старая популярность
+ * постепенно забывается.
+ */
+final class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+            0x97cb3127L, 0xab5e2a7dL, 0x7c6f3f1bL, 0x9e3779b9L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+        int counters = Integer.highestOneBit(Math.max(16, maximumSize) * 2 - 1) * 4;
+        this.table = new long[Math.max(1, counters / 16)];
+        this.mask = table.length * 16 - 1;
+        this.sampleSize = Math.max(10, 10 * maximumSize);
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int min = 15;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, counter(index(hash, row)));
+        }
+        return min;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(hash, row);
+            if (counter(index) < 15) {
+                table[index >>> 4] += 1L << ((index & 15) << 2);
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int counter(int index) {
+        return (int) ((table[index >>> 4] >>> ((index & 15) << 2)) & 15L);
+    }
+
+    private int index(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return (int) h & mask;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
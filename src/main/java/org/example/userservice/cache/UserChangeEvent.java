@@ -0,0 +1,31 @@
+package org.example.userservice.cache;
+
+/**
+ * Изменение строки user_service.users, полученное через NOTIFY.
+ */
+public record UserChangeEvent(long userId, Operation operation, long sentAtMillis) {
+
+    /**
+     * Payload массового изменения без построчных событий (например, удаления секции).
+     */
+    public static final String RESYNC = "RESYNC";
+
+    public enum Operation {
+        INSERT, UPDATE, DELETE
+    }
+
+    /**
+     * Разбирает payload триггера notify_user_change: {@code <операция>:<id>:<время в мс>}.
+     */
+    public static UserChangeEvent parse(String payload) {
+        String[] parts = payload.split(":");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid user change payload: " + payload);
+        }
+        return new UserChangeEvent(
+                Long.parseLong(parts[1]),
+                Operation.valueOf(parts[0]),
+                Long.parseLong(parts[2])
+        );
+    }
+}
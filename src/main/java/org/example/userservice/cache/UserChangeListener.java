@@ -0,0 +1,257 @@
+package org.example.userservice.cache;
+
+import org.example.userservice.util.HibernateUtil;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Слушает канал {@value #CHANNEL} на отдельном соединении и раздаёт изменения подписчикам.
+ * <p>
+ * События, пришедшие в пределах окна склейки, объединяются по id. После обрыва соединения
+ * слушатель переподключается с экспоненциальной задержкой и вызывает
+ * {@link UserChangeSubscriber#onResync()}, так как пропущенные за это время события не вернуть.
+ * Тот же вызов делается по payload {@value UserChangeEvent#RESYNC} — массовым изменениям без построчных событий.
+ */
+public class UserChangeListener implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(UserChangeListener.class);
+
+    public static final String CHANNEL = "user_changes";
+
+    private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+    private static final int POLL_TIMEOUT_MS = 500;
+    private static final long HEALTH_CHECK_INTERVAL_MS = 10_000;
+
+    @FunctionalInterface
+    public interface ConnectionSource {
+        Connection open() throws SQLException;
+    }
+
+    public record Stats(long received, long dispatched, long batches, long reconnects,
+                        long lastLagMillis, long maxLagMillis, double averageLagMillis) {
+    }
+
+    private final ConnectionSource connectionSource;
+    private final long coalesceWindowMs;
+    private final List<UserChangeSubscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private final AtomicLong totalLagMillis = new AtomicLong();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile Connection connection;
+    private Thread thread;
+
+    public UserChangeListener() {
+        this(HibernateUtil::openDedicatedConnection, Duration.ofMillis(20));
+    }
+
+    public UserChangeListener(ConnectionSource connectionSource, Duration coalesceWindow) {
+        this.connectionSource = connectionSource;
+        this.coalesceWindowMs = coalesceWindow.toMillis();
+    }
+
+    /**
+     * Добавляет подписчика. Возвращает действие для отписки.
+     */
+    public Runnable subscribe(UserChangeSubscriber subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "user-change-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public Stats stats() {
+        long count = received.get();
+        return new Stats(count, dispatched.get(), batches.get(), reconnects.get(),
+                lastLagMillis.get(), maxLagMillis.get(),
+                count == 0 ? 0 : (double) totalLagMillis.get() / count);
+    }
+
+    private void run() {
+        long reconnectDelayMs = 100;
+        boolean firstConnect = true;
+
+        while (running) {
+            try (Connection conn = connectionSource.open()) {
+                connection = conn;
+                conn.setAutoCommit(true);
+                try (Statement statement = conn.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                logger.info("Listening for user changes on channel {}", CHANNEL);
+
+                if (!firstConnect) {
+                    reconnects.incrementAndGet();
+                    notifyResync();
+                }
+                firstConnect = false;
+                reconnectDelayMs = 100;
+
+                listen(conn);
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                logger.error("User change listener connection failed, reconnecting in {} ms: {}",
+                        reconnectDelayMs, e.getMessage());
+                // Пока соединения нет, события теряются: кэши не должны жить на старых данных
+                if (!firstConnect) {
+                    notifyResync();
+                }
+                sleep(reconnectDelayMs);
+                reconnectDelayMs = Math.min(reconnectDelayMs * 2, MAX_RECONNECT_DELAY_MS);
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    private void listen(Connection conn) throws SQLException {
+        PGConnection pgConnection = conn.unwrap(PGConnection.class);
+        Map<Long, UserChangeEvent> pending = new LinkedHashMap<>();
+        long windowEnd = 0;
+        long lastActivity = System.currentTimeMillis();
+
+        while (running) {
+            int timeout = pending.isEmpty()
+                    ? POLL_TIMEOUT_MS
+                    : (int) Math.max(1, windowEnd - System.currentTimeMillis());
+            PGNotification[] notifications = pgConnection.getNotifications(timeout);
+            long now = System.currentTimeMillis();
+
+            if (notifications != null && notifications.length > 0) {
+                lastActivity = now;
+                if (pending.isEmpty()) {
+                    windowEnd = now + coalesceWindowMs;
+                }
+                boolean resync = false;
+                for (PGNotification notification : notifications) {
+                    if (CHANNEL.equals(notification.getName())
+                            && UserChangeEvent.RESYNC.equals(notification.getParameter())) {
+                        resync = true;
+                    } else {
+                        accept(notification, now, pending);
+                    }
+                }
+                if (resync) {
+                    // Пересинхронизация перекрывает накопленные построчные события
+                    pending.clear();
+                    notifyResync();
+                }
+            } else if (now - lastActivity > HEALTH_CHECK_INTERVAL_MS) {
+                // getNotifications не замечает "тихо" оборванное соединение
+                try (Statement statement = conn.createStatement()) {
+                    statement.execute("SELECT 1");
+                }
+                lastActivity = now;
+            }
+
+            if (!pending.isEmpty() && now >= windowEnd) {
+                dispatch(new ArrayList<>(pending.values()));
+                pending.clear();
+            }
+        }
+    }
+
+    private void accept(PGNotification notification, long now, Map<Long, UserChangeEvent> pending) {
+        if (!CHANNEL.equals(notification.getName())) {
+            return;
+        }
+        try {
+            UserChangeEvent event = UserChangeEvent.parse(notification.getParameter());
+            received.incrementAndGet();
+            long lag = Math.max(0, now - event.sentAtMillis());
+            lastLagMillis.set(lag);
+            totalLagMillis.addAndGet(lag);
+            maxLagMillis.accumulateAndGet(lag, Math::max);
+            // Последнее событие по id побеждает, порядок первого появления сохраняется
+            pending.put(event.userId(), event);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Ignoring malformed user change notification: {}", notification.getParameter());
+        }
+    }
+
+    private void dispatch(List<UserChangeEvent> changes) {
+        batches.incrementAndGet();
+        dispatched.addAndGet(changes.size());
+        for (UserChangeSubscriber subscriber : subscribers) {
+            try {
+                subscriber.onUserChanges(changes);
+            } catch (Exception e) {
+                logger.error("User change subscriber failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void notifyResync() {
+        for (UserChangeSubscriber subscriber : subscribers) {
+            try {
+                subscriber.onResync();
+            } catch (Exception e) {
+                logger.error("User change subscriber failed on resync: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @Override
+    public void close() {
+        Thread listenerThread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            listenerThread = thread;
+        }
+        Connection conn = connection;
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                logger.warn("Failed to close user change listener connection: {}", e.getMessage());
+            }
+        }
+        listenerThread.interrupt();
+        try {
+            listenerThread.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("User change listener stopped");
+    }
+}
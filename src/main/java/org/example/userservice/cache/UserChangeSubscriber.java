@@ -0,0 +1,21 @@
+package org.example.userservice.cache;
+
+import java.util.Collection;
+
+/**
+ * Подписчик на изменения пользователей, сделанные любым экземпляром сервиса.
+ * Вызывается из потока слушателя, поэтому не должен блокироваться надолго.
+ */
+public interface UserChangeSubscriber {
+
+    /**
+     * Пачка изменений; по каждому id приходит только последнее событие.
+     */
+    void onUserChanges(Collection<UserChangeEvent> changes);
+
+    /**
+     * Соединение слушателя переподключилось, часть событий могла потеряться —
+     * локальные кэши нужно сбросить целиком.
+     */
+    void onResync();
+}
@@ -0,0 +1,328 @@
+package org.example.userservice.dao;
+
+import org.example.userservice.cache.UserChangeEvent;
+import org.example.userservice.cache.UserChangeListener;
+import org.example.userservice.cache.UserChangeSubscriber;
+import org.example.userservice.cache.WTinyLfuCache;
+import org.example.userservice.model.User;
+import org.example.userservice.model.UserPatch;
+import org.example.userservice.util.UnitOfWork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Кэш {@code findById}/{@code findByEmail} поверх любого {@link UserDao}.
+ * <p>
+ * Записи ограничены по числу ({@link WTinyLfuCache}) и по времени жизни; после {@code refreshAfter}
+ * попадание отдаёт текущее значение и перезагружает его в фоне. Промахи кэшируются на короткий
+ * {@code negativeTtl}. Запись через этот DAO сбрасывает затронутые ключи сразу и ещё раз после
+ * завершения {@link UnitOfWork}: чтение из другого потока между записью и коммитом видит старую
+ * строку и может положить её в кэш уже после первого сброса. Изменения из
+ * других процессов приходят через {@link UserChangeListener} (подписка {@code listener.subscribe(cache)}).
+ * <p>
+ * Кэш по email хранит только id: ответ собирается из записи по id и отдаётся, лишь если её email
+ * всё ещё совпадает, поэтому после переименования старый email не вернёт пользователя. Загрузка,
+ * начатая до сброса, свой результат в кэш не кладёт. Внутри {@link UnitOfWork} кэш не используется.
+ */
+public class CachingUserDao extends ForwardingUserDao implements UserChangeSubscriber, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(CachingUserDao.class);
+
+    public record Stats(long hits, long negativeHits, long misses, long evictions, long loads,
+                        long loadFailures, double averageLoadMillis, long refreshes, long invalidations,
+                        int size) {
+    }
+
+    // user == null — закэшированный промах
+    private record IdEntry(User user, long loadedAtNanos, long expiresAtNanos) {
+    }
+
+    // id == null — закэшированный промах
+    private record EmailEntry(Long id, long expiresAtNanos) {
+    }
+
+    private final WTinyLfuCache<Long, IdEntry> byId;
+    private final WTinyLfuCache<String, EmailEntry> byEmail;
+    private final long ttlNanos;
+    private final long refreshAfterNanos;
+    private final long negativeTtlNanos;
+    private final ExecutorService refresher;
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong totalLoadNanos = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CachingUserDao(UserDao delegate) {
+        this(delegate, 10_000, Duration.ofMinutes(5), Duration.ofMinutes(4), Duration.ofSeconds(5));
+    }
+
+    public CachingUserDao(UserDao delegate, int maximumSize, Duration ttl, Duration refreshAfter,
+                          Duration negativeTtl) {
+        super(delegate);
+        if (refreshAfter.compareTo(ttl) > 0) {
+            throw new IllegalArgumentException("Refresh interval must not exceed TTL. Received: "
+                    + refreshAfter + " > " + ttl);
+        }
+        this.byId = new WTinyLfuCache<>(maximumSize);
+        this.byEmail = new WTinyLfuCache<>(maximumSize);
+        this.ttlNanos = ttl.toNanos();
+        this.refreshAfterNanos = refreshAfter.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.refresher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        if (UnitOfWork.isActive()) {
+            return delegate.findById(id);
+        }
+
+        long now = System.nanoTime();
+        IdEntry entry = byId.get(id);
+        if (entry != null && now < entry.expiresAtNanos()) {
+            if (entry.user() == null) {
+                negativeHits.incrementAndGet();
+                return Optional.empty();
+            }
+            hits.incrementAndGet();
+            refreshIfStale(id, entry, now);
+            return Optional.of(new User(entry.user()));
+        }
+        misses.incrementAndGet();
+        return loadById(id).map(User::new);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        if (UnitOfWork.isActive() || email == null) {
+            return delegate.findByEmail(email);
+        }
+
+        String key = emailKey(email);
+        long now = System.nanoTime();
+        EmailEntry mapping = byEmail.get(key);
+        if (mapping != null && now < mapping.expiresAtNanos()) {
+            if (mapping.id() == null) {
+                negativeHits.incrementAndGet();
+                return Optional.empty();
+            }
+            IdEntry entry = byId.get(mapping.id());
+            if (entry != null && entry.user() != null && now < entry.expiresAtNanos()
+                    && key.equals(emailKey(entry.user().getEmail()))) {
+                hits.incrementAndGet();
+                refreshIfStale(mapping.id(), entry, now);
+                return Optional.of(new User(entry.user()));
+            }
+            // Запись по id вытеснена или email у пользователя уже другой
+            byEmail.remove(key);
+        }
+        misses.incrementAndGet();
+
+        long epoch = invalidationEpoch.get();
+        Optional<User> loaded = timedLoad(() -> delegate.findByEmail(email));
+        if (invalidationEpoch.get() == epoch) {
+            if (loaded.isPresent()) {
+                cacheUser(loaded.get());
+            } else {
+                byEmail.put(key, new EmailEntry(null, System.nanoTime() + negativeTtlNanos));
+            }
+        }
+        return loaded.map(User::new);
+    }
+
+    @Override
+    public Long save(User user) {
+        Long id = delegate.save(user);
+        String email = emailKey(user.getEmail());
+        invalidateUntilCompletion(() -> {
+            invalidate(id);
+            // Закэшированный промах по этому email больше не верен
+            byEmail.remove(email);
+        });
+        return id;
+    }
+
+    @Override
+    public void update(User user) {
+        try {
+            delegate.update(user);
+        } finally {
+            // Сбрасываем и при ошибке: состояние в базе могло измениться частично
+            Long id = user.getId();
+            String email = user.getEmail() == null ? null : emailKey(user.getEmail());
+            invalidateUntilCompletion(() -> {
+                invalidate(id);
+                if (email != null) {
+                    byEmail.remove(email);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void delete(Long id) {
+        try {
+            delegate.delete(id);
+        } finally {
+            invalidateUntilCompletion(() -> invalidate(id));
+        }
+    }
+
+    @Override
+    public List<Long> deleteCreatedBefore(LocalDateTime before, Long afterId, int limit) {
+        List<Long> deleted = delegate.deleteCreatedBefore(before, afterId, limit);
+        invalidateUntilCompletion(() -> deleted.forEach(this::invalidate));
+        return deleted;
+    }
+
+    @Override
+    public Set<Long> updateAll(Map<Long, UserPatch> patches) {
+        try {
+            return delegate.updateAll(patches);
+        } finally {
+            invalidateUntilCompletion(() -> {
+                for (Map.Entry<Long, UserPatch> entry : patches.entrySet()) {
+                    invalidate(entry.getKey());
+                    if (entry.getValue().email() != null) {
+                        byEmail.remove(emailKey(entry.getValue().email()));
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onUserChanges(Collection<UserChangeEvent> changes) {
+        for (UserChangeEvent change : changes) {
+            invalidate(change.userId());
+        }
+    }
+
+    @Override
+    public void onResync() {
+        invalidationEpoch.incrementAndGet();
+        byId.clear();
+        byEmail.clear();
+        logger.info("User cache cleared on resync");
+    }
+
+    public Stats stats() {
+        long loadCount = loads.get();
+        return new Stats(hits.get(), negativeHits.get(), misses.get(),
+                byId.evictions() + byEmail.evictions(), loadCount, loadFailures.get(),
+                loadCount == 0 ? 0 : totalLoadNanos.get() / 1_000_000.0 / loadCount,
+                refreshes.get(), invalidations.get(), byId.size());
+    }
+
+    private Optional<User> loadById(Long id) {
+        long epoch = invalidationEpoch.get();
+        Optional<User> loaded = timedLoad(() -> delegate.findById(id));
+        if (invalidationEpoch.get() == epoch) {
+            if (loaded.isPresent()) {
+                cacheUser(loaded.get());
+            } else {
+                long now = System.nanoTime();
+                byId.put(id, new IdEntry(null, now, now + negativeTtlNanos));
+            }
+        }
+        return loaded;
+    }
+
+    private Optional<User> timedLoad(Supplier<Optional<User>> query) {
+        long start = System.nanoTime();
+        try {
+            Optional<User> result = query.get();
+            loads.incrementAndGet();
+            totalLoadNanos.addAndGet(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            loadFailures.incrementAndGet();
+            throw e;
+        }
+    }
+
+    private void cacheUser(User user) {
+        long now = System.nanoTime();
+        User copy = new User(user);
+        IdEntry previous = byId.peek(copy.getId());
+        byId.put(copy.getId(), new IdEntry(copy, now, now + ttlNanos));
+        if (previous != null && previous.user() != null
+                && !emailKey(previous.user().getEmail()).equals(emailKey(copy.getEmail()))) {
+            byEmail.remove(emailKey(previous.user().getEmail()));
+        }
+        byEmail.put(emailKey(copy.getEmail()), new EmailEntry(copy.getId(), now + ttlNanos));
+    }
+
+    private void refreshIfStale(Long id, IdEntry entry, long now) {
+        if (now - entry.loadedAtNanos() < refreshAfterNanos || !refreshing.add(id)) {
+            return;
+        }
+        refreshes.incrementAndGet();
+        try {
+            refresher.execute(() -> {
+                try {
+                    loadById(id);
+                } catch (Exception e) {
+                    logger.warn("Failed to refresh cached user {}: {}", id, e.getMessage());
+                } finally {
+                    refreshing.remove(id);
+                }
+            });
+        } catch (Exception e) {
+            refreshing.remove(id);
+        }
+    }
+
+    // Сразу — для чтений в этом потоке; после коммита — против значений, закэшированных до него
+    private void invalidateUntilCompletion(Runnable invalidation) {
+        invalidation.run();
+        if (UnitOfWork.isActive()) {
+            UnitOfWork.afterCompletion(invalidation);
+        }
+    }
+
+    private void invalidate(Long id) {
+        if (id == null) {
+            return;
+        }
+        invalidationEpoch.incrementAndGet();
+        invalidations.incrementAndGet();
+        IdEntry entry = byId.remove(id);
+        if (entry != null && entry.user() != null) {
+            byEmail.remove(emailKey(entry.user().getEmail()));
+        }
+    }
+
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+}
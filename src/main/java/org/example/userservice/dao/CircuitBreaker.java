@@ -0,0 +1,172 @@
+package org.example.userservice.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Предохранитель для обращений к базе.
+ * <p>
+ * После {@code failureThreshold} временных ошибок подряд размыкается на {@code openDuration}:
+ * вызовы сразу получают {@link CircuitBreakerOpenException}, не занимая потоки и соединения.
+ * Затем пропускает ограниченное число пробных вызовов: успех замыкает цепь, ошибка снова размыкает.
+ */
+public class CircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    public record Stats(State state, int consecutiveFailures, long successes, long failures,
+                        long rejected, long opened) {
+    }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenTrials;
+    private final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private int trialsInFlight;
+
+    private final AtomicLong successes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong opened = new AtomicLong();
+
+    public CircuitBreaker() {
+        this(5, Duration.ofSeconds(10), 1);
+    }
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration, int halfOpenTrials) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be positive. Received: " + failureThreshold);
+        }
+        if (halfOpenTrials < 1) {
+            throw new IllegalArgumentException("Half-open trials must be positive. Received: " + halfOpenTrials);
+        }
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenTrials = halfOpenTrials;
+    }
+
+    /**
+     * Подписка на смену состояния; вызывается в потоке, который её вызвал.
+     */
+    public void onStateChange(Consumer<State> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Разрешение на вызов; при разомкнутой цепи — {@link CircuitBreakerOpenException}.
+     */
+    public void acquirePermission() {
+        State changed = null;
+        synchronized (this) {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAtNanos < openDurationNanos) {
+                    rejected.incrementAndGet();
+                    throw new CircuitBreakerOpenException("Circuit breaker is open, failing fast");
+                }
+                state = State.HALF_OPEN;
+                trialsInFlight = 0;
+                changed = state;
+            }
+            if (state == State.HALF_OPEN) {
+                if (trialsInFlight >= halfOpenTrials) {
+                    rejected.incrementAndGet();
+                    throw new CircuitBreakerOpenException("Circuit breaker is half-open, trial call in progress");
+                }
+                trialsInFlight++;
+            }
+        }
+        publish(changed);
+    }
+
+    public void recordSuccess() {
+        successes.incrementAndGet();
+        State changed = null;
+        synchronized (this) {
+            consecutiveFailures = 0;
+            if (state == State.HALF_OPEN) {
+                state = State.CLOSED;
+                changed = state;
+            }
+        }
+        publish(changed);
+    }
+
+    /**
+     * Учитывает временную ошибку. Постоянные ошибки (нарушение ограничений и т.п.)
+     * говорят о запросе, а не о состоянии базы, и цепь не размыкают.
+     */
+    public void recordFailure() {
+        failures.incrementAndGet();
+        State changed = null;
+        synchronized (this) {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                state = State.OPEN;
+                openedAtNanos = System.nanoTime();
+                opened.incrementAndGet();
+                changed = state;
+            }
+        }
+        publish(changed);
+    }
+
+    /**
+     * Вызов завершился постоянной ошибкой: база ответила, значит она доступна.
+     */
+    public void recordIgnored() {
+        State changed = null;
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                state = State.CLOSED;
+                consecutiveFailures = 0;
+                changed = state;
+            }
+        }
+        publish(changed);
+    }
+
+    /**
+     * Вызов прервался без исхода (например, {@link Error}): состояние не меняется, но место
+     * пробного вызова освобождается, иначе полуоткрытая цепь отклоняла бы всё навсегда.
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && trialsInFlight > 0) {
+            trialsInFlight--;
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(state, consecutiveFailures, successes.get(), failures.get(), rejected.get(), opened.get());
+    }
+
+    private void publish(State changed) {
+        if (changed == null) {
+            return;
+        }
+        logger.warn("Circuit breaker state changed to {}", changed);
+        for (Consumer<State> listener : listeners) {
+            try {
+                listener.accept(changed);
+            } catch (Exception e) {
+                logger.error("Circuit breaker listener failed: {}", e.getMessage());
+            }
+        }
+    }
+}
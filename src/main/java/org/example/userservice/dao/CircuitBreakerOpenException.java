@@ -0,0 +1,10 @@
+package org.example.userservice.dao;
+
+/**
+ * Вызов не выполнялся: предохранитель разомкнут после серии временных ошибок базы.
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
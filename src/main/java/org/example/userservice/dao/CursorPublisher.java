@@ -0,0 +1,187 @@
+package org.example.userservice.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * {@link Flow.Publisher} поверх курсора: строки читаются только под спрос подписчика.
+ * <p>
+ * Каждый подписчик получает свой курсор, открытый при первом {@code request}. Строки не
+ * копятся в очереди: следующая читается, лишь когда подписчик её уже запросил, поэтому
+ * в памяти не больше одной порции драйвера. Размер порции ({@code fetchSize}) следует за
+ * текущим спросом в пределах {@code [minFetchSize, maxFetchSize]}: медленный подписчик
+ * тянет строки мелкими порциями, быстрый — крупными. {@code cancel()} закрывает курсор
+ * (а с ним соединение) сразу, если чтение не идёт, иначе — после текущей строки.
+ * Чтение идёт в потоке {@code executor}, не в потоке подписчика.
+ */
+public final class CursorPublisher<T> implements Flow.Publisher<T> {
+    private static final Logger logger = LoggerFactory.getLogger(CursorPublisher.class);
+
+    /**
+     * Открытый курсор. Вызывается из одного потока за раз.
+     */
+    public interface Cursor<T> extends AutoCloseable {
+        /**
+         * @param fetchSize сколько строк забирать с сервера за раз, когда прочитанные кончатся
+         * @return следующая строка или {@code null}, если строк больше нет
+         */
+        T next(int fetchSize);
+
+        @Override
+        void close();
+    }
+
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "cursor-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Supplier<? extends Cursor<T>> opener;
+    private final Executor executor;
+    private final int minFetchSize;
+    private final int maxFetchSize;
+
+    public CursorPublisher(Supplier<? extends Cursor<T>> opener, int minFetchSize, int maxFetchSize) {
+        this(opener, DEFAULT_EXECUTOR, minFetchSize, maxFetchSize);
+    }
+
+    public CursorPublisher(Supplier<? extends Cursor<T>> opener, Executor executor, int minFetchSize,
+                           int maxFetchSize) {
+        if (minFetchSize < 1) {
+            throw new IllegalArgumentException("Min fetch size must be positive. Received: " + minFetchSize);
+        }
+        if (maxFetchSize < minFetchSize) {
+            throw new IllegalArgumentException("Max fetch size must not be less than min fetch size. Received: "
+                    + maxFetchSize + " < " + minFetchSize);
+        }
+        this.opener = opener;
+        this.executor = executor;
+        this.minFetchSize = minFetchSize;
+        this.maxFetchSize = maxFetchSize;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        Subscription subscription = new Subscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    private final class Subscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        // Кто увеличил счётчик с нуля, тот и владеет курсором до его обнуления
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+
+        private Cursor<T> cursor;
+        private boolean done;
+
+        private Subscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Request must be positive. Received: " + n);
+            } else {
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RuntimeException e) {
+                    // Пул отказал — читаем некому, сообщаем подписчику
+                    done = true;
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            if (wip.getAndIncrement() == 0) {
+                // Чтение не идёт — курсор можно закрыть прямо здесь
+                closeCursor();
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                if (!done) {
+                    emit();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emit() {
+            try {
+                while (true) {
+                    if (cancelled) {
+                        finish();
+                        return;
+                    }
+                    Throwable invalid = invalidRequest;
+                    if (invalid != null) {
+                        finish();
+                        subscriber.onError(invalid);
+                        return;
+                    }
+                    long requested = demand.get();
+                    if (requested == 0) {
+                        return;
+                    }
+                    if (cursor == null) {
+                        cursor = opener.get();
+                    }
+                    T item = cursor.next((int) Math.max(minFetchSize, Math.min(maxFetchSize, requested)));
+                    if (item == null) {
+                        finish();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    demand.decrementAndGet();
+                    subscriber.onNext(item);
+                }
+            } catch (Throwable e) {
+                finish();
+                if (!cancelled) {
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        private void finish() {
+            done = true;
+            closeCursor();
+        }
+
+        private void closeCursor() {
+            if (cursor == null) {
+                return;
+            }
+            try {
+                cursor.close();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to close cursor: {}", e.getMessage());
+            } finally {
+                cursor = null;
+            }
+        }
+    }
+}
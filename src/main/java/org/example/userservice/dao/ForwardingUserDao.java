@@ -0,0 +1,95 @@
+package org.example.userservice.dao;
+
+import org.example.userservice.model.User;
+import org.example.userservice.model.UserPatch;
+import org.example.userservice.model.UserSummary;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Flow;
+
+/**
+ * Основа для декораторов DAO: по умолчанию всё передаётся делегату,
+ * наследник переопределяет только то, что меняет.
+ */
+public abstract class ForwardingUserDao implements UserDao {
+    protected final UserDao delegate;
+
+    protected ForwardingUserDao(UserDao delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Long save(User user) {
+        return delegate.save(user);
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<User> findAllById(Collection<Long> ids) {
+        return delegate.findAllById(ids);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<UserSummary> findSummaries() {
+        return delegate.findSummaries();
+    }
+
+    @Override
+    public List<UserSummary> findSummariesAfter(Long afterId, int limit) {
+        return delegate.findSummariesAfter(afterId, limit);
+    }
+
+    @Override
+    public void update(User user) {
+        delegate.update(user);
+    }
+
+    @Override
+    public void delete(Long id) {
+        delegate.delete(id);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return delegate.findByEmail(email);
+    }
+
+    @Override
+    public Set<Long> updateAll(Map<Long, UserPatch> patches) {
+        return delegate.updateAll(patches);
+    }
+
+    @Override
+    public List<User> findByCreatedBetween(LocalDateTime from, LocalDateTime to) {
+        return delegate.findByCreatedBetween(from, to);
+    }
+
+    @Override
+    public long countByCreatedBetween(LocalDateTime from, LocalDateTime to) {
+        return delegate.countByCreatedBetween(from, to);
+    }
+
+    @Override
+    public List<Long> deleteCreatedBefore(LocalDateTime before, Long afterId, int limit) {
+        return delegate.deleteCreatedBefore(before, afterId, limit);
+    }
+
+    @Override
+    public Flow.Publisher<User> streamAll() {
+        return delegate.streamAll();
+    }
+}
@@ -0,0 +1,442 @@
+package org.example.userservice.dao;
+
+import org.example.userservice.model.User;
+import org.example.userservice.model.UserPatch;
+import org.example.userservice.model.UserSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Потокобезопасная реализация в памяти — для разработки, CI и как быстрый уровень хранения.
+ * <p>
+ * Поведение совпадает с {@link UserDaoImpl}: email уникален без учёта регистра, нарушение
+ * уникальности и обновление несуществующего пользователя — {@code RuntimeException("Failed to ...")},
+ * удаление несуществующего — no-op, наружу отдаются копии. Чтения идут без блокировок по
+ * {@link ConcurrentHashMap} и отсортированным {@link ConcurrentSkipListMap}; записи сериализуются
+ * одной короткой блокировкой, чтобы индексы менялись согласованно (в том числе в {@code updateAll}).
+ * Необязательный снимок на диск позволяет пережить перезапуск.
+ */
+public class InMemoryUserDao implements UserDao, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryUserDao.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x55534552; // "USER"
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private record CreatedKey(LocalDateTime createdAt, long id) implements Comparable<CreatedKey> {
+        @Override
+        public int compareTo(CreatedKey other) {
+            int byTime = createdAt.compareTo(other.createdAt);
+            return byTime != 0 ? byTime : Long.compare(id, other.id);
+        }
+    }
+
+    private final ConcurrentHashMap<Long, User> users = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, User> byId = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<CreatedKey, User> byCreatedAt = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Long> emailIndex = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Path snapshotFile;
+
+    public InMemoryUserDao() {
+        this.snapshotFile = null;
+    }
+
+    /**
+     * Хранилище со снимком в {@code snapshotFile}: загружается из него, если файл есть,
+     * и сохраняется в него в {@link #snapshot()} и {@link #close()}.
+     */
+    public InMemoryUserDao(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+        if (Files.exists(snapshotFile)) {
+            load(snapshotFile);
+        }
+    }
+
+    @Override
+    public Long save(User user) {
+        writeLock.lock();
+        try {
+            if (user.getName() == null || user.getEmail() == null) {
+                throw new IllegalArgumentException("Name and email are required");
+            }
+            String emailKey = emailKey(user.getEmail());
+            long id = sequence.incrementAndGet();
+            if (emailIndex.putIfAbsent(emailKey, id) != null) {
+                throw new IllegalStateException("Duplicate email: " + user.getEmail());
+            }
+            // Как IDENTITY и @PrePersist: id и created_at появляются у переданного объекта
+            user.setId(id);
+            if (user.getCreatedAt() == null) {
+                user.setCreatedAt(LocalDateTime.now());
+            }
+            index(new User(user));
+            logger.info("User saved successfully: Name-{}, Email-{}", user.getName(), user.getEmail());
+            return id;
+        } catch (Exception e) {
+            logger.error("Error saving user: {}", e.getMessage());
+            throw new RuntimeException("Failed to save user", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        User user = id == null ? null : users.get(id);
+        return Optional.ofNullable(user).map(User::new);
+    }
+
+    @Override
+    public List<User> findAllById(Collection<Long> ids) {
+        List<User> found = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            User user = id == null ? null : users.get(id);
+            if (user != null) {
+                found.add(new User(user));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<User> findAll() {
+        List<User> all = new ArrayList<>(users.size());
+        for (User user : byId.values()) {
+            all.add(new User(user));
+        }
+        return all;
+    }
+
+    @Override
+    public List<UserSummary> findSummaries() {
+        List<UserSummary> summaries = new ArrayList<>(users.size());
+        for (User user : byId.values()) {
+            summaries.add(summary(user));
+        }
+        return summaries;
+    }
+
+    @Override
+    public List<UserSummary> findSummariesAfter(Long afterId, int limit) {
+        List<UserSummary> page = new ArrayList<>(Math.min(limit, 1024));
+        for (User user : byId.tailMap(afterId == null ? 0L : afterId, false).values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(summary(user));
+        }
+        return page;
+    }
+
+    @Override
+    public void update(User user) {
+        writeLock.lock();
+        try {
+            User current = user.getId() == null ? null : users.get(user.getId());
+            if (current == null) {
+                // merge() отсоединённой сущности без строки в базе тоже завершается ошибкой
+                throw new IllegalStateException("User not found: " + user.getId());
+            }
+            if (user.getName() == null || user.getEmail() == null) {
+                throw new IllegalArgumentException("Name and email are required");
+            }
+            User updated = new User(user);
+            if (updated.getCreatedAt() == null) {
+                updated.setCreatedAt(current.getCreatedAt());
+            }
+            replace(current, updated);
+            logger.info("User updated successfully: {}", user.getEmail());
+        } catch (Exception e) {
+            logger.error("Error updating user: {}", e.getMessage());
+            throw new RuntimeException("Failed to update user", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void delete(Long id) {
+        writeLock.lock();
+        try {
+            User user = id == null ? null : users.get(id);
+            if (user != null) {
+                unindex(user);
+                emailIndex.remove(emailKey(user.getEmail()), user.getId());
+                logger.info("User deleted successfully: {}", id);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        Long id = emailIndex.get(emailKey(email));
+        return id == null ? Optional.empty() : findById(id);
+    }
+
+    @Override
+    public Set<Long> updateAll(Map<Long, UserPatch> patches) {
+        if (patches.isEmpty()) {
+            return Set.of();
+        }
+
+        writeLock.lock();
+        try {
+            // Сначала проверяем всю пачку, потом применяем: как транзакция, либо всё, либо ничего
+            Map<Long, User> updated = new HashMap<>();
+            Map<String, Long> claimedEmails = new HashMap<>();
+            for (Map.Entry<Long, UserPatch> entry : patches.entrySet()) {
+                User current = users.get(entry.getKey());
+                if (current == null) {
+                    continue;
+                }
+                User copy = new User(current);
+                entry.getValue().applyTo(copy);
+                if (claimedEmails.putIfAbsent(emailKey(copy.getEmail()), copy.getId()) != null) {
+                    throw new IllegalStateException("Duplicate email: " + copy.getEmail());
+                }
+                updated.put(copy.getId(), copy);
+            }
+            // Email занят только если владелец не входит в пачку: иначе он его освобождает
+            // (совпадение новых email внутри пачки уже отсеяно выше)
+            for (Map.Entry<String, Long> claim : claimedEmails.entrySet()) {
+                Long owner = emailIndex.get(claim.getKey());
+                if (owner != null && !owner.equals(claim.getValue()) && !updated.containsKey(owner)) {
+                    throw new IllegalStateException("Duplicate email: " + claim.getKey());
+                }
+            }
+
+            for (User copy : updated.values()) {
+                User current = users.get(copy.getId());
+                emailIndex.remove(emailKey(current.getEmail()), current.getId());
+            }
+            for (User copy : updated.values()) {
+                emailIndex.put(emailKey(copy.getEmail()), copy.getId());
+                reindex(users.get(copy.getId()), copy);
+            }
+            logger.info("Users updated successfully: {} of {}", updated.size(), patches.size());
+            return new HashSet<>(updated.keySet());
+        } catch (Exception e) {
+            logger.error("Error updating users: {}", e.getMessage());
+            throw new RuntimeException("Failed to update users", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<User> findByCreatedBetween(LocalDateTime from, LocalDateTime to) {
+        List<User> found = new ArrayList<>();
+        for (User user : createdRange(from, to).values()) {
+            found.add(new User(user));
+        }
+        return found;
+    }
+
+    @Override
+    public long countByCreatedBetween(LocalDateTime from, LocalDateTime to) {
+        return createdRange(from, to).size();
+    }
+
+    @Override
+    public List<Long> deleteCreatedBefore(LocalDateTime before, Long afterId, int limit) {
+        List<Long> deleted = new ArrayList<>();
+        writeLock.lock();
+        try {
+            for (User user : byId.tailMap(afterId == null ? 0L : afterId, false).values()) {
+                if (deleted.size() >= limit) {
+                    break;
+                }
+                if (user.getCreatedAt().isBefore(before)) {
+                    unindex(user);
+                    emailIndex.remove(emailKey(user.getEmail()), user.getId());
+                    deleted.add(user.getId());
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        logger.info("Users deleted successfully: {} created before {}", deleted.size(), before);
+        return deleted;
+    }
+
+    @Override
+    public Flow.Publisher<User> streamAll() {
+        // Курсор — обход отсортированной карты: видны изменения, сделанные во время чтения
+        return new CursorPublisher<>(() -> new CursorPublisher.Cursor<User>() {
+            private final Iterator<User> iterator = byId.values().iterator();
+
+            @Override
+            public User next(int fetchSize) {
+                return iterator.hasNext() ? new User(iterator.next()) : null;
+            }
+
+            @Override
+            public void close() {
+            }
+        }, 1, 1);
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    /**
+     * Записывает снимок в файл, заданный в конструкторе. Файл заменяется атомарно.
+     */
+    public void snapshot() {
+        if (snapshotFile == null) {
+            throw new IllegalStateException("Snapshot file is not configured");
+        }
+        // Под блокировкой записи: в снимок попадает согласованное состояние вместе с последовательностью
+        writeLock.lock();
+        try {
+            Path parent = snapshotFile.toAbsolutePath().getParent();
+            Path temp = Files.createTempFile(parent, snapshotFile.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeLong(sequence.get());
+                out.writeInt(byId.size());
+                for (User user : byId.values()) {
+                    write(out, user);
+                }
+            }
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("In-memory users snapshot written: {} users to {}", byId.size(), snapshotFile);
+        } catch (IOException e) {
+            logger.error("Error writing users snapshot: {}", e.getMessage());
+            throw new RuntimeException("Failed to write users snapshot", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void load(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported snapshot format");
+            }
+            long savedSequence = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                User user = read(in);
+                emailIndex.put(emailKey(user.getEmail()), user.getId());
+                index(user);
+            }
+            sequence.set(savedSequence);
+            logger.info("In-memory users snapshot loaded: {} users from {}", count, file);
+        } catch (IOException e) {
+            logger.error("Error reading users snapshot: {}", e.getMessage());
+            throw new RuntimeException("Failed to read users snapshot", e);
+        }
+    }
+
+    private static void write(DataOutputStream out, User user) throws IOException {
+        out.writeLong(user.getId());
+        out.writeUTF(user.getName());
+        out.writeUTF(user.getEmail());
+        out.writeBoolean(user.getAge() != null);
+        if (user.getAge() != null) {
+            out.writeInt(user.getAge());
+        }
+        out.writeUTF(user.getCreatedAt().toString());
+    }
+
+    private static User read(DataInputStream in) throws IOException {
+        User user = new User();
+        user.setId(in.readLong());
+        user.setName(in.readUTF());
+        user.setEmail(in.readUTF());
+        if (in.readBoolean()) {
+            user.setAge(in.readInt());
+        }
+        user.setCreatedAt(LocalDateTime.parse(in.readUTF()));
+        return user;
+    }
+
+    // Вызывается под writeLock
+    private void replace(User current, User updated) {
+        String oldKey = emailKey(current.getEmail());
+        String newKey = emailKey(updated.getEmail());
+        if (!oldKey.equals(newKey)) {
+            if (emailIndex.putIfAbsent(newKey, updated.getId()) != null) {
+                throw new IllegalStateException("Duplicate email: " + updated.getEmail());
+            }
+            emailIndex.remove(oldKey, current.getId());
+        }
+        reindex(current, updated);
+    }
+
+    private void index(User user) {
+        users.put(user.getId(), user);
+        byId.put(user.getId(), user);
+        byCreatedAt.put(new CreatedKey(user.getCreatedAt(), user.getId()), user);
+    }
+
+    // Замена на месте: читатель без блокировки видит либо старую, либо новую версию, но не пропуск
+    private void reindex(User current, User updated) {
+        if (!current.getCreatedAt().equals(updated.getCreatedAt())) {
+            byCreatedAt.remove(new CreatedKey(current.getCreatedAt(), current.getId()));
+        }
+        index(updated);
+    }
+
+    private void unindex(User user) {
+        byCreatedAt.remove(new CreatedKey(user.getCreatedAt(), user.getId()));
+        byId.remove(user.getId());
+        users.remove(user.getId());
+    }
+
+    private Map<CreatedKey, User> createdRange(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return Map.of();
+        }
+        return byCreatedAt.subMap(new CreatedKey(from, Long.MIN_VALUE), true, new CreatedKey(to, Long.MIN_VALUE), false);
+    }
+
+    private static UserSummary summary(User user) {
+        return new UserSummary(user.getId(), user.getName(), user.getEmail());
+    }
+
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void close() {
+        if (snapshotFile != null) {
+            snapshot();
+        }
+    }
+}
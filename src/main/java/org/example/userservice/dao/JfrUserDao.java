@@ -0,0 +1,91 @@
+package org.example.userservice.dao;
+
+import org.example.userservice.jfr.OperationEvents;
+import org.example.userservice.model.User;
+import org.example.userservice.model.UserPatch;
+import org.example.userservice.model.UserSummary;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Пишет каждый вызов DAO событием {@link org.example.userservice.jfr.UserDaoEvent} в Java Flight
+ * Recorder. Ставится ближе всего к базе (под {@link ResilientUserDao}), чтобы каждая попытка была
+ * отдельным событием.
+ * {@code streamAll} не записывается: подписка живёт дольше вызова.
+ */
+public class JfrUserDao extends ForwardingUserDao {
+
+    public JfrUserDao(UserDao delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public Long save(User user) {
+        return OperationEvents.dao("save", () -> delegate.save(user));
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return OperationEvents.dao("findById", () -> delegate.findById(id));
+    }
+
+    @Override
+    public List<User> findAllById(Collection<Long> ids) {
+        return OperationEvents.dao("findAllById", () -> delegate.findAllById(ids));
+    }
+
+    @Override
+    public List<User> findAll() {
+        return OperationEvents.dao("findAll", delegate::findAll);
+    }
+
+    @Override
+    public List<UserSummary> findSummaries() {
+        return OperationEvents.dao("findSummaries", delegate::findSummaries);
+    }
+
+    @Override
+    public List<UserSummary> findSummariesAfter(Long afterId, int limit) {
+        return OperationEvents.dao("findSummariesAfter", () -> delegate.findSummariesAfter(afterId, limit));
+    }
+
+    @Override
+    public void update(User user) {
+        OperationEvents.dao("update", () -> delegate.update(user));
+    }
+
+    @Override
+    public void delete(Long id) {
+        OperationEvents.dao("delete", () -> delegate.delete(id));
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return OperationEvents.dao("findByEmail", () -> delegate.findByEmail(email));
+    }
+
+    @Override
+    public Set<Long> updateAll(Map<Long, UserPatch> patches) {
+        return OperationEvents.dao("updateAll", () -> delegate.updateAll(patches));
+    }
+
+    @Override
+    public List<User> findByCreatedBetween(LocalDateTime from, LocalDateTime to) {
+        return OperationEvents.dao("findByCreatedBetween", () -> delegate.findByCreatedBetween(from, to));
+    }
+
+    @Override
+    public long countByCreatedBetween(LocalDateTime from, LocalDateTime to) {
+        return OperationEvents.dao("countByCreatedBetween", () -> delegate.countByCreatedBetween(from, to));
+    }
+
+    @Override
+    public List<Long> deleteCreatedBefore(LocalDateTime before, Long afterId, int limit) {
+        return OperationEvents.dao("deleteCreatedBefore", () -> delegate.deleteCreatedBefore(before, afterId, limit));
+    }
+}
@@ -0,0 +1,174 @@
+package org.example.userservice.dao;
+
+import org.example.userservice.model.User;
+import org.example.userservice.model.UserPatch;
+import org.example.userservice.model.UserSummary;
+import org.example.userservice.util.UnitOfWork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Повторы временных ошибок и предохранитель поверх DAO.
+ * <p>
+ * Временность ошибки определяет {@link SqlStateClassifier}. Повторяются только идемпотентные
+ * операции: чтения, update/updateAll (пишут итоговые значения) и delete. {@code save} не повторяется —
+ * при обрыве после INSERT повтор создал бы второго пользователя. Внутри {@link UnitOfWork}
+ * повторов нет: транзакция после ошибки прервана, всю единицу работы повторяет {@link TransactionRetry}.
+ * Пауза между попытками — экспоненциальная со случайным разбросом (full jitter).
+ */
+public class ResilientUserDao extends ForwardingUserDao {
+    private static final Logger logger = LoggerFactory.getLogger(ResilientUserDao.class);
+
+    public record Stats(long calls, long retries, long transientFailures, long permanentFailures,
+                        CircuitBreaker.Stats circuitBreaker) {
+    }
+
+    private final int maxAttempts;
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+    private final CircuitBreaker circuitBreaker;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong transientFailures = new AtomicLong();
+    private final AtomicLong permanentFailures = new AtomicLong();
+
+    public ResilientUserDao(UserDao delegate) {
+        this(delegate, 3, Duration.ofMillis(50), Duration.ofSeconds(1), new CircuitBreaker());
+    }
+
+    public ResilientUserDao(UserDao delegate, int maxAttempts, Duration baseDelay, Duration maxDelay,
+                            CircuitBreaker circuitBreaker) {
+        super(delegate);
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Max attempts must be positive. Received: " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayNanos = baseDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Stats stats() {
+        return new Stats(calls.get(), retries.get(), transientFailures.get(), permanentFailures.get(),
+                circuitBreaker.stats());
+    }
+
+    @Override
+    public Long save(User user) {
+        return call(false, () -> delegate.save(user));
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return call(true, () -> delegate.findById(id));
+    }
+
+    @Override
+    public List<User> findAllById(Collection<Long> ids) {
+        return call(true, () -> delegate.findAllById(ids));
+    }
+
+    @Override
+    public List<User> findAll() {
+        return call(true, delegate::findAll);
+    }
+
+    @Override
+    public List<UserSummary> findSummaries() {
+        return call(true, delegate::findSummaries);
+    }
+
+    @Override
+    public List<UserSummary> findSummariesAfter(Long afterId, int limit) {
+        return call(true, () -> delegate.findSummariesAfter(afterId, limit));
+    }
+
+    @Override
+    public void update(User user) {
+        call(true, () -> {
+            delegate.update(user);
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(Long id) {
+        call(true, () -> {
+            delegate.delete(id);
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return call(true, () -> delegate.findByEmail(email));
+    }
+
+    @Override
+    public Set<Long> updateAll(Map<Long, UserPatch> patches) {
+        return call(true, () -> delegate.updateAll(patches));
+    }
+
+    @Override
+    public List<User> findByCreatedBetween(LocalDateTime from, LocalDateTime to) {
+        return call(true, () -> delegate.findByCreatedBetween(from, to));
+    }
+
+    @Override
+    public long countByCreatedBetween(LocalDateTime from, LocalDateTime to) {
+        return call(true, () -> delegate.countByCreatedBetween(from, to));
+    }
+
+    // Не повторяется: после обрыва на коммите повтор удалил бы следующую пачку, а id первой потерялись бы
+    @Override
+    public List<Long> deleteCreatedBefore(LocalDateTime before, Long afterId, int limit) {
+        return call(false, () -> delegate.deleteCreatedBefore(before, afterId, limit));
+    }
+
+    private <T> T call(boolean idempotent, Supplier<T> operation) {
+        calls.incrementAndGet();
+        int attempts = idempotent && !UnitOfWork.isActive() ? maxAttempts : 1;
+
+        for (int attempt = 1; ; attempt++) {
+            circuitBreaker.acquirePermission();
+            try {
+                T result = operation.get();
+                circuitBreaker.recordSuccess();
+                return result;
+            } catch (RuntimeException e) {
+                if (!SqlStateClassifier.isTransient(e)) {
+                    permanentFailures.incrementAndGet();
+                    circuitBreaker.recordIgnored();
+                    throw e;
+                }
+                transientFailures.incrementAndGet();
+                circuitBreaker.recordFailure();
+                if (attempt >= attempts) {
+                    throw e;
+                }
+                retries.incrementAndGet();
+                logger.warn("Transient database failure (SQLState {}), retrying attempt {} of {}",
+                        SqlStateClassifier.sqlState(e), attempt + 1, attempts);
+                TransactionRetry.backoff(attempt, baseDelayNanos, maxDelayNanos, e);
+            } catch (Error e) {
+                circuitBreaker.releasePermission();
+                throw e;
+            }
+        }
+    }
+}
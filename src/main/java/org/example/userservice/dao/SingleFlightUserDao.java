@@ -0,0 +1,117 @@
+package org.example.userservice.dao;
+
+import org.example.userservice.model.User;
+import org.example.userservice.util.UnitOfWork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Склейка одновременных одинаковых запросов (single-flight).
+ * <p>
+ * Пока запрос {@code findById}/{@code findByEmail} по ключу выполняется, остальные потоки
+ * с тем же ключом ждут его результат (или исключение) вместо собственного запроса. Ожидание
+ * ограничено: по таймауту поток идёт в базу сам. Внутри {@link UnitOfWork} склейка не
+ * применяется — результат чужой транзакции может не совпадать с тем, что видит текущая.
+ */
+public class SingleFlightUserDao extends ForwardingUserDao {
+    private static final Logger logger = LoggerFactory.getLogger(SingleFlightUserDao.class);
+
+    public record Stats(long executed, long coalesced, long waitTimeouts) {
+    }
+
+    private record Key(String kind, Object value) {
+    }
+
+    private final ConcurrentHashMap<Key, CompletableFuture<Optional<User>>> inFlight = new ConcurrentHashMap<>();
+    private final long maxWaitNanos;
+
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong waitTimeouts = new AtomicLong();
+
+    public SingleFlightUserDao(UserDao delegate) {
+        this(delegate, Duration.ofSeconds(2));
+    }
+
+    public SingleFlightUserDao(UserDao delegate, Duration maxWait) {
+        super(delegate);
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return load(new Key("id", id), () -> delegate.findById(id));
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return load(new Key("email", email), () -> delegate.findByEmail(email));
+    }
+
+    public Stats stats() {
+        return new Stats(executed.get(), coalesced.get(), waitTimeouts.get());
+    }
+
+    private Optional<User> load(Key key, Supplier<Optional<User>> query) {
+        if (UnitOfWork.isActive()) {
+            executed.incrementAndGet();
+            return query.get();
+        }
+
+        CompletableFuture<Optional<User>> own = new CompletableFuture<>();
+        CompletableFuture<Optional<User>> existing = inFlight.putIfAbsent(key, own);
+        if (existing == null) {
+            return lead(key, own, query);
+        }
+        return follow(existing, query);
+    }
+
+    private Optional<User> lead(Key key, CompletableFuture<Optional<User>> future,
+                                Supplier<Optional<User>> query) {
+        executed.incrementAndGet();
+        try {
+            Optional<User> result = query.get();
+            // Ожидающим — нетронутый снимок: вызывающий может тут же изменить свой объект
+            future.complete(result.map(User::new));
+            return result;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private Optional<User> follow(CompletableFuture<Optional<User>> future, Supplier<Optional<User>> query) {
+        try {
+            Optional<User> shared = future.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+            coalesced.incrementAndGet();
+            // Сущность изменяема, поэтому каждый ожидающий получает свою копию
+            return shared.map(User::new);
+        } catch (TimeoutException e) {
+            waitTimeouts.incrementAndGet();
+            logger.warn("Timed out waiting for in-flight user lookup, querying directly");
+            executed.incrementAndGet();
+            return query.get();
+        } catch (ExecutionException e) {
+            coalesced.incrementAndGet();
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Failed to find user", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for user lookup", e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.userservice.dao;
+
+import jakarta.persistence.QueryTimeoutException;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Set;
+
+/**
+ * Разделяет ошибки базы на временные (имеет смысл повторить) и постоянные по SQLState
+ * первого {@link SQLException} в цепочке причин. Ошибка без SQLState считается постоянной.
+ */
+public final class SqlStateClassifier {
+    // Класс 08 — проблемы соединения, 57P01..57P03 — перезапуск или недоступность сервера
+    private static final Set<String> TRANSIENT_CLASSES = Set.of("08");
+    private static final Set<String> TRANSIENT_STATES = Set.of(
+            "40001", // serialization_failure
+            "40P01", // deadlock_detected
+            "55P03", // lock_not_available
+            "53300", // too_many_connections
+            "57P01", // admin_shutdown
+            "57P02", // crash_shutdown
+            "57P03"  // cannot_connect_now
+    );
+
+    private static final String QUERY_CANCELED = "57014";
+
+    private SqlStateClassifier() {
+    }
+
+    public static boolean isTransient(Throwable failure) {
+        String sqlState = sqlState(failure);
+        return sqlState != null
+                && (TRANSIENT_STATES.contains(sqlState)
+                || (sqlState.length() >= 2 && TRANSIENT_CLASSES.contains(sqlState.substring(0, 2))));
+    }
+
+    /**
+     * Запрос отменён по таймауту: statement_timeout на сервере (57014) или таймаут драйвера.
+     */
+    public static boolean isTimeout(Throwable failure) {
+        for (Throwable current = failure; current != null; current = current.getCause()) {
+            if (current instanceof SQLTimeoutException || current instanceof QueryTimeoutException) {
+                return true;
+            }
+            if (current.getCause() == current) {
+                break;
+            }
+        }
+        return QUERY_CANCELED.equals(sqlState(failure));
+    }
+
+    public static String sqlState(Throwable failure) {
+        for (Throwable current = failure; current != null; current = current.getCause()) {
+            if (current instanceof SQLException sqlException && sqlException.getSQLState() != null) {
+                return sqlException.getSQLState();
+            }
+            if (current.getCause() == current) {
+                break;
+            }
+        }
+        return null;
+    }
+}
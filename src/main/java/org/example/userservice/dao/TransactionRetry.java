@@ -0,0 +1,98 @@
+package org.example.userservice.dao;
+
+import org.example.userservice.util.Deadline;
+import org.example.userservice.util.UnitOfWork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Повтор всей единицы работы при временной ошибке базы.
+ * <p>
+ * Внутри {@link UnitOfWork} {@link ResilientUserDao} отдельные вызовы не повторяет: после ошибки
+ * транзакция прервана. Здесь откатанная единица работы выполняется заново целиком — с тем же
+ * {@link SqlStateClassifier} и той же паузой с разбросом. Вложенный вызов присоединяется к внешней
+ * единице и выполняется один раз: повторяет только самая внешняя. Обрыв соединения на самом
+ * коммите неоднозначен: если коммит успел пройти, повтор увидит собственные изменения
+ * (например, создание ответит, что email уже занят).
+ */
+public final class TransactionRetry {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionRetry.class);
+
+    public record Stats(long units, long retries, long transientFailures) {
+    }
+
+    private final int maxAttempts;
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+
+    private final AtomicLong units = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong transientFailures = new AtomicLong();
+
+    public TransactionRetry() {
+        this(3, Duration.ofMillis(50), Duration.ofSeconds(1));
+    }
+
+    public TransactionRetry(int maxAttempts, Duration baseDelay, Duration maxDelay) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Max attempts must be positive. Received: " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayNanos = baseDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+    }
+
+    public <T> T execute(Supplier<T> work) {
+        if (UnitOfWork.isActive()) {
+            return work.get();
+        }
+        units.incrementAndGet();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return UnitOfWork.execute(work);
+            } catch (RuntimeException e) {
+                if (!SqlStateClassifier.isTransient(e)) {
+                    throw e;
+                }
+                transientFailures.incrementAndGet();
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                retries.incrementAndGet();
+                logger.warn("Transient database failure in unit of work (SQLState {}), retrying attempt {} of {}",
+                        SqlStateClassifier.sqlState(e), attempt + 1, maxAttempts);
+                backoff(attempt, baseDelayNanos, maxDelayNanos, e);
+            }
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(units.get(), retries.get(), transientFailures.get());
+    }
+
+    /**
+     * Пауза перед попыткой {@code attempt + 1}: экспоненциальная со случайным разбросом (full jitter).
+     * Если пауза не укладывается в {@link Deadline} или поток прерван, бросает {@code failure}.
+     */
+    static void backoff(int attempt, long baseDelayNanos, long maxDelayNanos, RuntimeException failure) {
+        long ceiling = Math.min(maxDelayNanos, baseDelayNanos << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        if (delay >= Deadline.remaining()) {
+            // Повтор всё равно не успеет до срока вызова
+            throw failure;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw failure;
+        }
+    }
+}
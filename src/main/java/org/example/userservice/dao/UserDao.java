@@ -1,15 +1,33 @@
 package org.example.userservice.dao;
 
 import org.example.userservice.model.User;
+import org.example.userservice.model.UserPatch;
+import org.example.userservice.model.UserSummary;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Flow;
 
 public interface UserDao {
     Long save(User user);
     Optional<User> findById(Long id);
+    List<User> findAllById(Collection<Long> ids);
     List<User> findAll();
+    List<UserSummary> findSummaries();
+    List<UserSummary> findSummariesAfter(Long afterId, int limit);
     void update(User user);
     void delete(Long id);
     Optional<User> findByEmail(String email);
+    Set<Long> updateAll(Map<Long, UserPatch> patches);
+    // Полуинтервал [from, to) по created_at
+    List<User> findByCreatedBetween(LocalDateTime from, LocalDateTime to);
+    long countByCreatedBetween(LocalDateTime from, LocalDateTime to);
+    // Удаляет до limit пользователей с created_at < before и id > afterId (по возрастанию id), возвращает их id
+    List<Long> deleteCreatedBefore(LocalDateTime before, Long afterId, int limit);
+    // Все пользователи по возрастанию id, с обратным давлением: строки читаются под спрос подписчика
+    Flow.Publisher<User> streamAll();
 }
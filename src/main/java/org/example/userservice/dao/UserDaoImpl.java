@@ -1,117 +1,374 @@
 package org.example.userservice.dao;
 
 import org.example.userservice.model.User;
+import org.example.userservice.model.UserPatch;
+import org.example.userservice.model.UserSummary;
 import org.example.userservice.util.HibernateUtil;
+import org.example.userservice.util.UnitOfWork;
+import org.hibernate.BatchSize;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.hibernate.query.Query;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Objects;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Flow;
 
+/**
+ * Реализация на Hibernate. Каждый метод присоединяется к текущей {@link UnitOfWork},
+ * а если её нет — выполняется в собственной сессии и транзакции.
+ */
 public class UserDaoImpl implements UserDao {
     private static final Logger logger = LoggerFactory.getLogger(UserDaoImpl.class);
+    private static final int MULTI_LOAD_BATCH_SIZE = 500;
+    private static final int MIN_STREAM_FETCH_SIZE = 16;
+    private static final int MAX_STREAM_FETCH_SIZE = 1_000;
+    private static final int BULK_UPDATE_CHUNK_SIZE = 5_000;
+    private static final String BULK_UPDATE = "UPDATE user_service.users u SET "
+            + "name = coalesce(p.name, u.name), age = coalesce(p.age, u.age) "
+            + "FROM unnest(?::bigint[], ?::varchar[], ?::int[]) AS p(id, name, age) "
+            + "WHERE u.id = p.id RETURNING u.id";
+    // email в SET запускает триггер реестра email для каждой строки, поэтому только там, где он меняется
+    private static final String BULK_UPDATE_WITH_EMAIL = "UPDATE user_service.users u SET "
+            + "name = coalesce(p.name, u.name), email = p.email, age = coalesce(p.age, u.age) "
+            + "FROM unnest(?::bigint[], ?::varchar[], ?::int[], ?::varchar[]) AS p(id, name, age, email) "
+            + "WHERE u.id = p.id RETURNING u.id";
+    private static final String SUMMARY_SELECT =
+            "SELECT new org.example.userservice.model.UserSummary(u.id, u.name, u.email) FROM User u ";
 
     public Long save(User user) {
-        Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
+        try {
+            return UnitOfWork.withSession(session -> {
+                session.persist(user);
 
-            session.persist(user);
-
-            transaction.commit();
-            logger.info("User saved successfully: Name-{}, Email-{}", user.getName(), user.getEmail());
-            return user.getId();
+                logger.info("User saved successfully: Name-{}, Email-{}", user.getName(), user.getEmail());
+                return user.getId();
+            });
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             logger.error("Error saving user: {}", e.getMessage());
             throw new RuntimeException("Failed to save user", e);
         }
     }
 
     public Optional<User> findById(Long id) {
-        Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
-
-            User user = session.find(User.class, id);
-
-            transaction.commit();
-            return Optional.ofNullable(user);
+        try {
+            return UnitOfWork.withSession(session -> Optional.ofNullable(session.find(User.class, id)));
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             logger.error("Error finding user by id {}: {}", id, e.getMessage());
             throw new RuntimeException("Failed to find user", e);
         }
     }
 
-    public List<User> findAll() {
-        Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
+    public List<User> findAllById(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
 
-            List<User> users = session.createQuery("FROM User", User.class).list();
+        try {
+            // Мульти-загрузка: id = any(?) пачками, порядок входа сохраняется, отсутствующие — null
+            List<User> users = UnitOfWork.withSession(session ->
+                    session.findMultiple(User.class, new ArrayList<>(ids), new BatchSize(MULTI_LOAD_BATCH_SIZE)));
+            return users.stream().filter(Objects::nonNull).toList();
+        } catch (Exception e) {
+            logger.error("Error finding {} users by id: {}", ids.size(), e.getMessage());
+            throw new RuntimeException("Failed to find users", e);
+        }
+    }
 
-            transaction.commit();
-            return users;
+    public List<User> findAll() {
+        try {
+            return UnitOfWork.withSession(session -> session.createQuery("FROM User", User.class).list());
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             logger.error("Error finding all users: {}", e.getMessage());
             throw new RuntimeException("Failed to find users", e);
         }
     }
 
-    public void update(User user) {
-        Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
+    public List<UserSummary> findSummaries() {
+        try {
+            return UnitOfWork.withSession(session ->
+                    session.createSelectionQuery(SUMMARY_SELECT + "ORDER BY u.id", UserSummary.class).list());
+        } catch (Exception e) {
+            logger.error("Error finding user summaries: {}", e.getMessage());
+            throw new RuntimeException("Failed to find users", e);
+        }
+    }
 
-            session.merge(user);
+    public List<UserSummary> findSummariesAfter(Long afterId, int limit) {
+        try {
+            // Keyset-пагинация: стоимость страницы не растёт с её номером, в отличие от OFFSET
+            return UnitOfWork.withSession(session ->
+                    session.createSelectionQuery(SUMMARY_SELECT + "WHERE u.id > :afterId ORDER BY u.id",
+                                    UserSummary.class)
+                            .setParameter("afterId", afterId == null ? 0L : afterId)
+                            .setMaxResults(limit)
+                            .list());
+        } catch (Exception e) {
+            logger.error("Error finding user summaries after id {}: {}", afterId, e.getMessage());
+            throw new RuntimeException("Failed to find users", e);
+        }
+    }
 
-            transaction.commit();
+    public void update(User user) {
+        try {
+            UnitOfWork.withSession(session -> {
+                session.merge(user);
+                // Ошибки записи должны всплыть здесь, а не при коммите внешней единицы работы
+                session.flush();
+                return null;
+            });
             logger.info("User updated successfully: {}", user.getEmail());
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             logger.error("Error updating user: {}", e.getMessage());
             throw new RuntimeException("Failed to update user", e);
         }
     }
 
     public void delete(Long id) {
-        Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
-
-            User user = session.find(User.class, id);
-            if (user != null) {
-                session.remove(user);
-                logger.info("User deleted successfully: {}", id);
-            }
-
-            transaction.commit();
+        try {
+            UnitOfWork.withSession(session -> {
+                User user = session.find(User.class, id);
+                if (user != null) {
+                    session.remove(user);
+                    session.flush();
+                    logger.info("User deleted successfully: {}", id);
+                }
+                return null;
+            });
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             logger.error("Error deleting user {}: {}", id, e.getMessage());
             throw new RuntimeException("Failed to delete user", e);
         }
     }
 
     public Optional<User> findByEmail(String email) {
-        Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
-
-            Query<User> query = session.createQuery("FROM User WHERE email = :email", User.class);
-            query.setParameter("email", email);
-            Optional<User> user = query.uniqueResultOptional();
-
-            transaction.commit();
-            return user;
+        try {
+            return UnitOfWork.withSession(session -> {
+                // lower() с обеих сторон: запрос попадает в индекс по lower(email)
+                Query<User> query = session.createQuery("FROM User WHERE lower(email) = lower(:email)", User.class);
+                query.setParameter("email", email);
+                return query.uniqueResultOptional();
+            });
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             logger.error("Error finding user by email: {}: {}", email, e.getMessage());
             throw new RuntimeException("Failed to find user by email", e);
         }
     }
-}
\ No newline at end of file
+
+    public Set<Long> updateAll(Map<Long, UserPatch> patches) {
+        if (patches.isEmpty()) {
+            return Set.of();
+        }
+
+        try {
+            Set<Long> updated = UnitOfWork.withSession(session -> {
+                // Изменения сущностей этой единицы работы должны попасть в базу раньше UPDATE
+                session.flush();
+                List<Map.Entry<Long, UserPatch>> withEmail = new ArrayList<>();
+                List<Map.Entry<Long, UserPatch>> withoutEmail = new ArrayList<>();
+                for (Map.Entry<Long, UserPatch> entry : patches.entrySet()) {
+                    (entry.getValue().email() != null ? withEmail : withoutEmail).add(entry);
+                }
+                Set<Long> ids = new HashSet<>();
+                for (List<Map.Entry<Long, UserPatch>> group : List.of(withoutEmail, withEmail)) {
+                    for (int from = 0; from < group.size(); from += BULK_UPDATE_CHUNK_SIZE) {
+                        List<Map.Entry<Long, UserPatch>> chunk =
+                                group.subList(from, Math.min(group.size(), from + BULK_UPDATE_CHUNK_SIZE));
+                        ids.addAll(session.doReturningWork(connection -> bulkUpdate(connection, chunk)));
+                    }
+                }
+                refreshManaged(session, ids);
+                return ids;
+            });
+            logger.info("Users updated successfully: {} of {}", updated.size(), patches.size());
+            return updated;
+        } catch (Exception e) {
+            logger.error("Error updating users: {}", e.getMessage());
+            throw new RuntimeException("Failed to update users", e);
+        }
+    }
+
+    // Одно выражение на пачку: массивы по столбцам разворачиваются unnest в строки,
+    // null в массиве — поле не меняется. RETURNING сообщает, какие id нашлись.
+    // В пачке либо у всех изменений есть email, либо ни у одного
+    private static Set<Long> bulkUpdate(Connection connection, List<Map.Entry<Long, UserPatch>> chunk)
+            throws SQLException {
+        boolean changesEmail = chunk.get(0).getValue().email() != null;
+        Long[] ids = new Long[chunk.size()];
+        String[] names = new String[chunk.size()];
+        Integer[] ages = new Integer[chunk.size()];
+        String[] emails = new String[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            UserPatch patch = chunk.get(i).getValue();
+            ids[i] = chunk.get(i).getKey();
+            names[i] = patch.name();
+            ages[i] = patch.age();
+            emails[i] = patch.email();
+        }
+
+        List<Array> arrays = new ArrayList<>();
+        try (PreparedStatement statement =
+                     connection.prepareStatement(changesEmail ? BULK_UPDATE_WITH_EMAIL : BULK_UPDATE)) {
+            arrays.add(connection.createArrayOf("bigint", ids));
+            arrays.add(connection.createArrayOf("varchar", names));
+            arrays.add(connection.createArrayOf("integer", ages));
+            if (changesEmail) {
+                arrays.add(connection.createArrayOf("varchar", emails));
+            }
+            for (int i = 0; i < arrays.size(); i++) {
+                statement.setArray(i + 1, arrays.get(i));
+            }
+            Set<Long> updated = new HashSet<>();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    updated.add(rows.getLong(1));
+                }
+            }
+            return updated;
+        } finally {
+            for (Array array : arrays) {
+                array.free();
+            }
+        }
+    }
+
+    // UPDATE прошёл мимо контекста сессии: загруженные в него пользователи перечитываются
+    private static void refreshManaged(Session session, Set<Long> ids) {
+        List<User> stale = new ArrayList<>();
+        for (Object entity : session.unwrap(SessionImplementor.class)
+                .getPersistenceContextInternal().getEntitiesByKey().values()) {
+            if (entity instanceof User user && ids.contains(user.getId())) {
+                stale.add(user);
+            }
+        }
+        stale.forEach(session::refresh);
+    }
+
+    public List<User> findByCreatedBetween(LocalDateTime from, LocalDateTime to) {
+        try {
+            // Условие по ключу секционирования: планировщик читает только секции нужных месяцев
+            return UnitOfWork.withSession(session ->
+                    session.createQuery("FROM User WHERE createdAt >= :from AND createdAt < :to "
+                                    + "ORDER BY createdAt, id", User.class)
+                            .setParameter("from", from)
+                            .setParameter("to", to)
+                            .list());
+        } catch (Exception e) {
+            logger.error("Error finding users created between {} and {}: {}", from, to, e.getMessage());
+            throw new RuntimeException("Failed to find users", e);
+        }
+    }
+
+    public long countByCreatedBetween(LocalDateTime from, LocalDateTime to) {
+        try {
+            return UnitOfWork.withSession(session ->
+                    session.createSelectionQuery("SELECT count(u) FROM User u "
+                                    + "WHERE u.createdAt >= :from AND u.createdAt < :to", Long.class)
+                            .setParameter("from", from)
+                            .setParameter("to", to)
+                            .getSingleResult());
+        } catch (Exception e) {
+            logger.error("Error counting users created between {} and {}: {}", from, to, e.getMessage());
+            throw new RuntimeException("Failed to count users", e);
+        }
+    }
+
+    public List<Long> deleteCreatedBefore(LocalDateTime before, Long afterId, int limit) {
+        try {
+            List<Long> deleted = UnitOfWork.withSession(session ->
+                    // Одна пачка — одно выражение: выбор по первичному ключу (id, created_at) и DELETE ... RETURNING.
+                    // Связка по обоим столбцам оставляет удаление в секциях, найденных выборкой
+                    session.createNativeQuery("WITH chunk AS ("
+                                    + "SELECT id, created_at FROM user_service.users "
+                                    + "WHERE created_at < :before AND id > :afterId ORDER BY id LIMIT :limit) "
+                                    + "DELETE FROM user_service.users u USING chunk c "
+                                    + "WHERE u.id = c.id AND u.created_at = c.created_at RETURNING u.id", Long.class)
+                            .setParameter("before", before)
+                            .setParameter("afterId", afterId == null ? 0L : afterId)
+                            .setParameter("limit", limit)
+                            .addSynchronizedEntityClass(User.class)
+                            .list());
+            logger.info("Users deleted successfully: {} created before {}", deleted.size(), before);
+            return deleted;
+        } catch (Exception e) {
+            logger.error("Error deleting users created before {}: {}", before, e.getMessage());
+            throw new RuntimeException("Failed to delete users", e);
+        }
+    }
+
+    /**
+     * Поток всех пользователей по возрастанию id через серверный курсор. Пока подписка
+     * активна, она держит отдельное соединение и транзакцию, не связанные с {@link UnitOfWork}.
+     */
+    public Flow.Publisher<User> streamAll() {
+        return new CursorPublisher<>(ScrollCursor::new, MIN_STREAM_FETCH_SIZE, MAX_STREAM_FETCH_SIZE);
+    }
+
+    private static final class ScrollCursor implements CursorPublisher.Cursor<User> {
+        private final StatelessSession session;
+        private final Transaction transaction;
+        private final ScrollableResults<User> rows;
+        private int fetchSize = MIN_STREAM_FETCH_SIZE;
+
+        private ScrollCursor() {
+            StatelessSession opened = HibernateUtil.openStatelessSession();
+            try {
+                // Курсор PostgreSQL с fetch size работает только внутри транзакции
+                transaction = opened.beginTransaction();
+                rows = opened.createSelectionQuery("FROM User u ORDER BY u.id", User.class)
+                        .setFetchSize(fetchSize)
+                        .setReadOnly(true)
+                        .scroll(ScrollMode.FORWARD_ONLY);
+            } catch (Exception e) {
+                opened.close();
+                logger.error("Error opening user stream: {}", e.getMessage());
+                throw new RuntimeException("Failed to stream users", e);
+            }
+            session = opened;
+        }
+
+        @Override
+        public User next(int fetchSize) {
+            try {
+                if (fetchSize != this.fetchSize) {
+                    // Драйвер применит новый размер к следующему запросу порции
+                    rows.setFetchSize(fetchSize);
+                    this.fetchSize = fetchSize;
+                }
+                return rows.next() ? rows.get() : null;
+            } catch (Exception e) {
+                logger.error("Error streaming users: {}", e.getMessage());
+                throw new RuntimeException("Failed to stream users", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                rows.close();
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+            } finally {
+                session.close();
+            }
+        }
+    }
+}
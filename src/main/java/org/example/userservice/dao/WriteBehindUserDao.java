@@ -0,0 +1,430 @@
+package org.example.userservice.dao;
+
+import org.example.userservice.model.User;
+import org.example.userservice.model.UserPatch;
+import org.example.userservice.model.UserSummary;
+import org.example.userservice.util.HibernateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Отложенная запись обновлений (write-behind).
+ * <p>
+ * {@link #update(User)} не ходит в базу, а складывает изменения в буфер по id пользователя,
+ * где они склеиваются по правилу "последняя запись поля побеждает". Буфер сбрасывается пачками
+ * через {@link UserDao#updateAll(Map)} по размеру или по таймеру, а также при
+ * {@link HibernateUtil#shutdown()}, после которого буфер закрыт. Перед
+ * {@link HibernateUtil#resetSessionFactory()} буфер только сбрасывается и дальше пишет через
+ * новую фабрику. Чтения видят ещё не записанные изменения.
+ */
+public class WriteBehindUserDao extends ForwardingUserDao implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindUserDao.class);
+
+    private final int maxPendingUsers;
+    private final int flushBatchSize;
+    private final Duration offerTimeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    // Изменения, ещё не отданные на запись
+    private final LinkedHashMap<Long, UserPatch> pending = new LinkedHashMap<>();
+    // Изменения, которые пишутся прямо сейчас: нужны для чтений до коммита
+    private final Map<Long, UserPatch> inFlight = new HashMap<>();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    private final Runnable shutdownHook = this::close;
+    private final Runnable resetHook = this::flush;
+    private volatile boolean closed;
+
+    public WriteBehindUserDao(UserDao delegate) {
+        this(delegate, 10_000, 500, Duration.ofMillis(200), Duration.ofSeconds(5));
+    }
+
+    public WriteBehindUserDao(UserDao delegate, int maxPendingUsers, int flushBatchSize,
+                              Duration flushInterval, Duration offerTimeout) {
+        super(delegate);
+        if (maxPendingUsers <= 0 || flushBatchSize <= 0) {
+            throw new IllegalArgumentException("Buffer and batch sizes must be positive");
+        }
+        this.maxPendingUsers = maxPendingUsers;
+        this.flushBatchSize = flushBatchSize;
+        this.offerTimeout = offerTimeout;
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "user-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        HibernateUtil.registerShutdownHook(shutdownHook);
+        HibernateUtil.registerResetHook(resetHook);
+    }
+
+    // Буферизует все поля строки: одновременные изменения разных полей лучше передавать
+    // через updateAll только изменёнными полями, как делает UserService.updateUser
+    @Override
+    public void update(User user) {
+        if (user.getId() == null) {
+            throw new IllegalArgumentException("ID cannot be null");
+        }
+        enqueue(user.getId(), UserPatch.of(user));
+    }
+
+    private void enqueue(Long id, UserPatch patch) {
+        if (closed) {
+            throw new IllegalStateException("Write-behind buffer is closed");
+        }
+
+        int size;
+        lock.lock();
+        try {
+            long remainingNanos = offerTimeout.toNanos();
+            while (!pending.containsKey(id) && pending.size() >= maxPendingUsers) {
+                requestFlush();
+                if (remainingNanos <= 0) {
+                    throw new IllegalStateException("Write-behind buffer is full, pending: " + pending.size());
+                }
+                remainingNanos = notFull.awaitNanos(remainingNanos);
+            }
+            pending.merge(id, patch, UserPatch::merge);
+            size = pending.size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for write-behind buffer", e);
+        } finally {
+            lock.unlock();
+        }
+
+        if (size >= flushBatchSize) {
+            requestFlush();
+        }
+    }
+
+    private void requestFlush() {
+        if (!closed && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    private void flushQuietly() {
+        flushRequested.set(false);
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Write-behind flush failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Синхронно записывает все накопленные изменения.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<Long, UserPatch> batch;
+            while (!(batch = takeBatch()).isEmpty()) {
+                writeBatch(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private Map<Long, UserPatch> takeBatch() {
+        lock.lock();
+        try {
+            inFlight.clear();
+            Iterator<Map.Entry<Long, UserPatch>> it = pending.entrySet().iterator();
+            while (it.hasNext() && inFlight.size() < flushBatchSize) {
+                Map.Entry<Long, UserPatch> entry = it.next();
+                inFlight.put(entry.getKey(), entry.getValue());
+                it.remove();
+            }
+            notFull.signalAll();
+            return new LinkedHashMap<>(inFlight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeBatch(Map<Long, UserPatch> batch) {
+        try {
+            delegate.updateAll(batch);
+        } catch (Exception batchError) {
+            // Одна плохая запись (например, занятый email) не должна терять остальные
+            logger.warn("Batch of {} updates failed, retrying one by one: {}", batch.size(), batchError.getMessage());
+            for (Map.Entry<Long, UserPatch> entry : batch.entrySet()) {
+                try {
+                    delegate.updateAll(Map.of(entry.getKey(), entry.getValue()));
+                } catch (Exception e) {
+                    logger.error("Dropping buffered update for user {}: {}", entry.getKey(), e.getMessage());
+                }
+            }
+        } finally {
+            lock.lock();
+            try {
+                inFlight.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private UserPatch overlayFor(Long id) {
+        lock.lock();
+        try {
+            UserPatch writing = inFlight.get(id);
+            UserPatch waiting = pending.get(id);
+            if (writing == null) {
+                return waiting;
+            }
+            return waiting == null ? writing : writing.merge(waiting);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<Long, UserPatch> overlaySnapshot() {
+        lock.lock();
+        try {
+            Map<Long, UserPatch> snapshot = new HashMap<>(inFlight);
+            pending.forEach((id, patch) -> snapshot.merge(id, patch, UserPatch::merge));
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Копия, а не сам объект: внутри UnitOfWork делегат отдаёт управляемую сущность,
+    // и её изменение ушло бы в базу при коммите в обход буфера
+    private User withOverlay(User user, UserPatch patch) {
+        User copy = new User(user);
+        if (patch != null) {
+            patch.applyTo(copy);
+        }
+        return copy;
+    }
+
+    public int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size() + inFlight.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        UserPatch patch = overlayFor(id);
+        return delegate.findById(id).map(user -> withOverlay(user, patch));
+    }
+
+    @Override
+    public List<User> findAllById(Collection<Long> ids) {
+        Map<Long, UserPatch> overlay = overlaySnapshot();
+        List<User> users = new ArrayList<>();
+        for (User user : delegate.findAllById(ids)) {
+            users.add(withOverlay(user, overlay.get(user.getId())));
+        }
+        return users;
+    }
+
+    @Override
+    public List<User> findAll() {
+        Map<Long, UserPatch> overlay = overlaySnapshot();
+        List<User> users = new ArrayList<>();
+        for (User user : delegate.findAll()) {
+            users.add(withOverlay(user, overlay.get(user.getId())));
+        }
+        return users;
+    }
+
+    @Override
+    public Flow.Publisher<User> streamAll() {
+        Flow.Publisher<User> users = delegate.streamAll();
+        // Отложенные изменения накладываются в момент выдачи строки
+        return subscriber -> users.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscriber.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onNext(User user) {
+                subscriber.onNext(withOverlay(user, overlayFor(user.getId())));
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                subscriber.onError(error);
+            }
+
+            @Override
+            public void onComplete() {
+                subscriber.onComplete();
+            }
+        });
+    }
+
+    @Override
+    public List<User> findByCreatedBetween(LocalDateTime from, LocalDateTime to) {
+        Map<Long, UserPatch> overlay = overlaySnapshot();
+        List<User> users = new ArrayList<>();
+        for (User user : delegate.findByCreatedBetween(from, to)) {
+            users.add(withOverlay(user, overlay.get(user.getId())));
+        }
+        return users;
+    }
+
+    @Override
+    public List<UserSummary> findSummaries() {
+        return withOverlay(delegate.findSummaries());
+    }
+
+    @Override
+    public List<UserSummary> findSummariesAfter(Long afterId, int limit) {
+        return withOverlay(delegate.findSummariesAfter(afterId, limit));
+    }
+
+    private List<UserSummary> withOverlay(List<UserSummary> summaries) {
+        Map<Long, UserPatch> overlay = overlaySnapshot();
+        if (overlay.isEmpty()) {
+            return summaries;
+        }
+        List<UserSummary> result = new ArrayList<>(summaries.size());
+        for (UserSummary summary : summaries) {
+            UserPatch patch = overlay.get(summary.id());
+            result.add(patch == null ? summary : new UserSummary(summary.id(),
+                    patch.name() != null ? patch.name() : summary.name(),
+                    patch.email() != null ? patch.email() : summary.email()));
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        Map<Long, UserPatch> overlay = overlaySnapshot();
+
+        // Пользователь, которому email назначен, но ещё не записан
+        for (Map.Entry<Long, UserPatch> entry : overlay.entrySet()) {
+            if (email.equals(entry.getValue().email())) {
+                Optional<User> user = delegate.findById(entry.getKey());
+                if (user.isPresent()) {
+                    return Optional.of(withOverlay(user.get(), entry.getValue()));
+                }
+            }
+        }
+
+        Optional<User> stored = delegate.findByEmail(email);
+        if (stored.isPresent()) {
+            UserPatch patch = overlay.get(stored.get().getId());
+            // email уже переназначен отложенным изменением
+            if (patch != null && patch.email() != null && !patch.email().equals(email)) {
+                return Optional.empty();
+            }
+            return Optional.of(withOverlay(stored.get(), patch));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void delete(Long id) {
+        lock.lock();
+        try {
+            pending.remove(id);
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        delegate.delete(id);
+    }
+
+    @Override
+    public List<Long> deleteCreatedBefore(LocalDateTime before, Long afterId, int limit) {
+        List<Long> deleted = delegate.deleteCreatedBefore(before, afterId, limit);
+        lock.lock();
+        try {
+            // Отложенные изменения удалённых пользователей писать уже некуда
+            deleted.forEach(pending::remove);
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return deleted;
+    }
+
+    // В буфер попадают только изменения существующих пользователей: id, которых ещё нет в буфере,
+    // проверяются одним запросом. Пользователь, удалённый между проверкой и сбросом, всё равно
+    // будет в ответе, но при сбросе его изменение просто ничего не обновит
+    @Override
+    public Set<Long> updateAll(Map<Long, UserPatch> patches) {
+        List<Long> unknown = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Long id : patches.keySet()) {
+                if (!pending.containsKey(id) && !inFlight.containsKey(id)) {
+                    unknown.add(id);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        Set<Long> existing = new HashSet<>(patches.keySet());
+        if (!unknown.isEmpty()) {
+            existing.removeAll(unknown);
+            delegate.findAllById(unknown).forEach(user -> existing.add(user.getId()));
+        }
+
+        Set<Long> updated = new LinkedHashSet<>();
+        patches.forEach((id, patch) -> {
+            if (existing.contains(id)) {
+                enqueue(id, patch);
+                updated.add(id);
+            }
+        });
+        return updated;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        HibernateUtil.unregisterShutdownHook(shutdownHook);
+        HibernateUtil.unregisterResetHook(resetHook);
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        logger.info("Write-behind buffer closed");
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.userservice.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма задержек без блокировок: корзины по степеням двойки в микросекундах
+ * (1 мкс .. ~35 минут). Перцентили приближённые — верхняя граница корзины, ошибка не больше 2x,
+ * зато запись стоит один инкремент и память не растёт с числом запросов.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 32;
+
+    public record Snapshot(long count, long errors, double meanMillis, double p50Millis,
+                           double p99Millis, double maxMillis) {
+    }
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos, boolean error) {
+        long micros = Math.max(1, nanos / 1_000);
+        int bucket = Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        if (error) {
+            errors.incrementAndGet();
+        }
+    }
+
+    public Snapshot snapshot() {
+        long total = count.get();
+        return new Snapshot(total, errors.get(),
+                total == 0 ? 0 : totalNanos.get() / 1_000_000.0 / total,
+                percentile(0.50), percentile(0.99),
+                maxNanos.get() / 1_000_000.0);
+    }
+
+    private double percentile(double quantile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // Верхняя граница корзины i — 2^(i+1) мкс
+                return Math.min((1L << (i + 1)) / 1_000.0, maxNanos.get() / 1_000_000.0);
+            }
+        }
+        return maxNanos.get() / 1_000_000.0;
+    }
+}
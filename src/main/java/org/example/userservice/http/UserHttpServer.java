@@ -0,0 +1,387 @@
+package org.example.userservice.http;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.userservice.dao.CircuitBreakerOpenException;
+import org.example.userservice.model.User;
+import org.example.userservice.model.UserSummary;
+import org.example.userservice.service.ServiceOverloadedException;
+import org.example.userservice.service.UserService;
+import org.example.userservice.util.Deadline;
+import org.example.userservice.util.DeadlineExceededException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * HTTP/JSON-интерфейс к {@link UserService} на встроенном {@link HttpServer} JDK.
+ * <p>
+ * Эндпоинты: {@code POST /users}, {@code GET /users?afterId=&limit=} (keyset-страницы сводок),
+ * {@code GET|PUT|DELETE /users/{id}} и {@code GET /metrics} — задержки по эндпоинтам.
+ * Списки пишутся потоково в chunked-ответ, без сборки всего JSON в памяти. Соединения
+ * HTTP/1.1 переиспользуются (keep-alive), поэтому тело запроса всегда дочитывается.
+ * Вызов сервиса ограничен {@code requestTimeout} ({@link Deadline}): по его истечении клиент
+ * получает 504, поток обработки освобождается, а запрос к базе отменяется.
+ */
+public class UserHttpServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(UserHttpServer.class);
+
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final String JSON = "application/json; charset=utf-8";
+
+    record UserRequest(String name, String email, Integer age) {
+    }
+
+    private static final class HttpError extends RuntimeException {
+        private final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final UserService userService;
+    private final HttpServer server;
+    private final ExecutorService exchangeExecutor;
+    private final ExecutorService serviceExecutor;
+    private final long requestTimeoutNanos;
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    public UserHttpServer(UserService userService, int port) throws IOException {
+        this(userService, new InetSocketAddress(port), 32, Duration.ofSeconds(5));
+    }
+
+    /**
+     * @param threads размер пулов обработки соединений и вызовов сервиса
+     */
+    public UserHttpServer(UserService userService, InetSocketAddress address, int threads,
+                          Duration requestTimeout) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive. Received: " + threads);
+        }
+        this.userService = userService;
+        this.requestTimeoutNanos = requestTimeout.toNanos();
+        this.exchangeExecutor = Executors.newFixedThreadPool(threads, daemonThreads("user-http"));
+        this.serviceExecutor = Executors.newFixedThreadPool(threads, daemonThreads("user-http-call"));
+
+        this.server = HttpServer.create(address, 0);
+        server.createContext("/users", this::handleUsers);
+        server.createContext("/metrics", this::handleMetrics);
+        server.setExecutor(exchangeExecutor);
+    }
+
+    public void start() {
+        server.start();
+        logger.info("User HTTP server listening on port {}", port());
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Задержки по эндпоинтам, ключ — {@code "<метод> <шаблон пути>"}.
+     */
+    public Map<String, LatencyHistogram.Snapshot> stats() {
+        Map<String, LatencyHistogram.Snapshot> stats = new TreeMap<>();
+        latencies.forEach((endpoint, histogram) -> stats.put(endpoint, histogram.snapshot()));
+        return stats;
+    }
+
+    private void handleUsers(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        boolean collection = path.equals("/users") || path.equals("/users/");
+
+        String endpoint = method + (collection ? " /users" : " /users/{id}");
+        long start = System.nanoTime();
+        int status = 500;
+        try {
+            Long id = collection ? null : parseId(path.substring(Math.min(path.length(), "/users/".length())));
+            status = route(exchange, method, id);
+        } catch (HttpError e) {
+            status = e.status;
+            sendError(exchange, status, e.getMessage());
+        } catch (Exception e) {
+            status = statusOf(e);
+            if (status == 500) {
+                logger.error("Error handling {} {}: {}", method, path, e.getMessage());
+            }
+            sendError(exchange, status, status == 500 ? "Internal server error" : e.getMessage());
+        } finally {
+            exchange.close();
+            latencies.computeIfAbsent(endpoint, key -> new LatencyHistogram())
+                    .record(System.nanoTime() - start, status >= 500);
+        }
+    }
+
+    private int route(HttpExchange exchange, String method, Long id) throws Exception {
+        if (id == null) {
+            switch (method) {
+                case "POST" -> {
+                    UserRequest request = readBody(exchange);
+                    Long created = call(() -> userService.createUser(request.name(), request.email(), request.age()));
+                    sendJson(exchange, 201, Map.of("id", created));
+                    return 201;
+                }
+                case "GET" -> {
+                    return streamSummaries(exchange);
+                }
+                default -> throw new HttpError(405, "Method not allowed");
+            }
+        }
+
+        switch (method) {
+            case "GET" -> {
+                Optional<User> user = call(() -> userService.getUserById(id));
+                if (user.isEmpty()) {
+                    throw new HttpError(404, "User not found with ID: " + id);
+                }
+                drainBody(exchange);
+                exchange.getResponseHeaders().set("Content-Type", JSON);
+                exchange.sendResponseHeaders(200, 0);
+                try (JsonGenerator generator = mapper.getFactory().createGenerator(exchange.getResponseBody())) {
+                    writeUser(generator, user.get());
+                }
+                return 200;
+            }
+            case "PUT" -> {
+                UserRequest request = readBody(exchange);
+                boolean updated = call(() -> userService.updateUser(id, request.name(), request.email(), request.age()));
+                if (!updated) {
+                    throw new HttpError(404, "User not found with ID: " + id);
+                }
+                sendJson(exchange, 200, Map.of("id", id));
+                return 200;
+            }
+            case "DELETE" -> {
+                boolean deleted = call(() -> userService.deleteUser(id));
+                if (!deleted) {
+                    throw new HttpError(404, "User not found with ID: " + id);
+                }
+                drainBody(exchange);
+                exchange.sendResponseHeaders(204, -1);
+                return 204;
+            }
+            default -> throw new HttpError(405, "Method not allowed");
+        }
+    }
+
+    private int streamSummaries(HttpExchange exchange) throws Exception {
+        Map<String, String> query = parseQuery(exchange.getRequestURI());
+        Long afterId = query.containsKey("afterId") ? parseId(query.get("afterId")) : null;
+        int limit = query.containsKey("limit") ? parseInt(query.get("limit"), "limit") : DEFAULT_PAGE_SIZE;
+        List<UserSummary> page = call(() -> userService.getUserSummaries(afterId, limit));
+
+        drainBody(exchange);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        // Длина 0 — chunked: элементы уходят клиенту по мере записи
+        exchange.sendResponseHeaders(200, 0);
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(exchange.getResponseBody())) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("items");
+            for (UserSummary summary : page) {
+                generator.writeStartObject();
+                generator.writeNumberField("id", summary.id());
+                generator.writeStringField("name", summary.name());
+                generator.writeStringField("email", summary.email());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            // Курсор следующей страницы; null — страниц больше нет
+            if (page.size() == limit) {
+                generator.writeNumberField("nextAfterId", page.get(page.size() - 1).id());
+            } else {
+                generator.writeNullField("nextAfterId");
+            }
+            generator.writeEndObject();
+        }
+        return 200;
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            drainBody(exchange);
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            sendJson(exchange, 200, stats());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private <T> T call(Supplier<T> action) throws Exception {
+        // Срок передаётся и в сам вызов: запросы к базе отменяются, а не продолжают занимать соединение
+        Duration budget = Duration.ofNanos(requestTimeoutNanos);
+        Future<T> future = serviceExecutor.submit(() -> Deadline.within(budget, action));
+        try {
+            return future.get(requestTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new HttpError(504, "Request timed out after "
+                    + TimeUnit.NANOSECONDS.toMillis(requestTimeoutNanos) + " ms");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static int statusOf(Exception e) {
+        if (e instanceof IllegalArgumentException) {
+            return 400;
+        }
+        if (e instanceof ServiceOverloadedException || e instanceof CircuitBreakerOpenException) {
+            return 503;
+        }
+        if (e instanceof DeadlineExceededException) {
+            return 504;
+        }
+        return 500;
+    }
+
+    private UserRequest readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new HttpError(413, "Request body exceeds " + MAX_BODY_BYTES + " bytes");
+            }
+            if (body.length == 0) {
+                throw new HttpError(400, "Request body is required");
+            }
+            try {
+                return mapper.readValue(body, UserRequest.class);
+            } catch (JsonProcessingException e) {
+                throw new HttpError(400, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    // Недочитанное тело не даст переиспользовать соединение
+    private static void drainBody(HttpExchange exchange) {
+        try (InputStream in = exchange.getRequestBody()) {
+            in.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            // Тело уже прочитано и закрыто либо соединение оборвано — дочитывать нечего
+        }
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            // Заголовки уже ушли (ошибка посреди потокового ответа) — остаётся оборвать ответ
+            return;
+        }
+        drainBody(exchange);
+        if (status == 503) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+        }
+        sendJson(exchange, status, Map.of("error", message == null ? "" : message));
+    }
+
+    private static void writeUser(JsonGenerator generator, User user) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", user.getId());
+        generator.writeStringField("name", user.getName());
+        generator.writeStringField("email", user.getEmail());
+        if (user.getAge() != null) {
+            generator.writeNumberField("age", user.getAge());
+        } else {
+            generator.writeNullField("age");
+        }
+        generator.writeStringField("createdAt",
+                user.getCreatedAt() == null ? null : user.getCreatedAt().toString());
+        generator.writeEndObject();
+    }
+
+    private static Long parseId(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, "Invalid user ID: " + value);
+        }
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, "Invalid " + name + ": " + value);
+        }
+    }
+
+    private static Map<String, String> parseQuery(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String query = uri.getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Override
+    public void close() {
+        // Даём текущим запросам до секунды на завершение
+        server.stop(1);
+        exchangeExecutor.shutdownNow();
+        serviceExecutor.shutdownNow();
+        logger.info("User HTTP server stopped");
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.userservice.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Общие поля событий операций. Длительность и поток JFR записывает сам.
+ */
+abstract class OperationEvent extends Event {
+    @Label("Operation")
+    @Description("Method name")
+    String operation;
+
+    @Label("Statements")
+    @Description("JDBC statements executed by Hibernate during the operation")
+    long statements;
+
+    @Label("Rows")
+    @Description("Rows returned or affected")
+    long rows;
+
+    @Label("Outcome")
+    @Description("success or failure")
+    String outcome;
+
+    @Label("Error")
+    @Description("Exception class for failed operations")
+    String error;
+}
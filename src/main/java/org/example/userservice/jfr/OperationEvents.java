@@ -0,0 +1,98 @@
+package org.example.userservice.jfr;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Запись операций в JFR ({@link UserDaoEvent}, {@link UserServiceEvent}).
+ * <p>
+ * Если событие выключено в настройках записи или записи нет, работа просто выполняется:
+ * событие не заполняется, и JIT убирает его создание. Выражения считаются потоковым
+ * счётчиком, который увеличивает слушатель сессий Hibernate ({@link #statementExecuted()}),
+ * поэтому во вложенных операциях каждое событие видит только свои. JDBC-код в обход
+ * Hibernate ({@code doWork}) не учитывается.
+ */
+public final class OperationEvents {
+    private static final String SUCCESS = "success";
+    private static final String FAILURE = "failure";
+
+    private static final ThreadLocal<long[]> STATEMENTS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private OperationEvents() {
+    }
+
+    public static <T> T dao(String operation, Supplier<T> work) {
+        return record(new UserDaoEvent(), operation, work);
+    }
+
+    public static void dao(String operation, Runnable work) {
+        record(new UserDaoEvent(), operation, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static <T> T service(String operation, Supplier<T> work) {
+        return record(new UserServiceEvent(), operation, work);
+    }
+
+    public static void statementExecuted() {
+        STATEMENTS.get()[0]++;
+    }
+
+    private static <T> T record(OperationEvent event, String operation, Supplier<T> work) {
+        if (!event.isEnabled()) {
+            return work.get();
+        }
+
+        long[] statements = STATEMENTS.get();
+        long statementsBefore = statements[0];
+        event.begin();
+        try {
+            T result = work.get();
+            event.end();
+            if (event.shouldCommit()) {
+                commit(event, operation, statements[0] - statementsBefore, rowsOf(result), SUCCESS, null);
+            }
+            return result;
+        } catch (RuntimeException | Error e) {
+            event.end();
+            if (event.shouldCommit()) {
+                commit(event, operation, statements[0] - statementsBefore, 0, FAILURE, e.getClass().getName());
+            }
+            throw e;
+        }
+    }
+
+    private static void commit(OperationEvent event, String operation, long statements, long rows,
+                               String outcome, String error) {
+        event.operation = operation;
+        event.statements = statements;
+        event.rows = rows;
+        event.outcome = outcome;
+        event.error = error;
+        event.commit();
+    }
+
+    // Коллекция — её размер, Optional и boolean — 0 или 1, id или число — одна строка
+    static long rowsOf(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Map<?, ?> map) {
+            return map.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Boolean found) {
+            return found ? 1 : 0;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.userservice.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сводка записи JFR по операциям: число вызовов, ошибки, p50/p99/максимум длительности,
+ * выражения и строки в среднем на вызов. Строки отсортированы по суммарному времени.
+ * <p>
+ * Запуск: {@code java -cp target/classes org.example.userservice.jfr.RecordingSummary rec.jfr}
+ */
+public final class RecordingSummary {
+
+    public record Row(String layer, String operation, long calls, long failures, double p50Ms, double p99Ms,
+                      double maxMs, double totalMs, double statementsPerCall, double rowsPerCall) {
+    }
+
+    private static final class Accumulator {
+        private final List<Long> durations = new ArrayList<>();
+        private long failures;
+        private long statements;
+        private long rows;
+    }
+
+    private RecordingSummary() {
+    }
+
+    public static List<Row> summarize(Path recording) throws IOException {
+        Map<List<String>, Accumulator> byOperation = new HashMap<>();
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                String layer = layerOf(event.getEventType().getName());
+                if (layer == null) {
+                    continue;
+                }
+                Accumulator accumulator = byOperation.computeIfAbsent(
+                        List.of(layer, event.getString("operation")), key -> new Accumulator());
+                accumulator.durations.add(event.getDuration().toNanos());
+                accumulator.statements += event.getLong("statements");
+                accumulator.rows += event.getLong("rows");
+                if (!"success".equals(event.getString("outcome"))) {
+                    accumulator.failures++;
+                }
+            }
+        }
+
+        List<Row> rows = new ArrayList<>();
+        byOperation.forEach((key, accumulator) -> {
+            long[] durations = accumulator.durations.stream().mapToLong(Long::longValue).sorted().toArray();
+            int calls = durations.length;
+            rows.add(new Row(key.get(0), key.get(1), calls, accumulator.failures,
+                    percentile(durations, 0.50), percentile(durations, 0.99), durations[calls - 1] / 1e6,
+                    Arrays.stream(durations).sum() / 1e6,
+                    (double) accumulator.statements / calls, (double) accumulator.rows / calls));
+        });
+        rows.sort(Comparator.comparingDouble(Row::totalMs).reversed());
+        return rows;
+    }
+
+    public static void print(List<Row> rows, PrintStream out) {
+        out.printf("%-8s %-24s %8s %8s %10s %10s %10s %12s %8s %8s%n",
+                "layer", "operation", "calls", "failed", "p50 ms", "p99 ms", "max ms", "total ms", "stmt", "rows");
+        for (Row row : rows) {
+            out.printf("%-8s %-24s %8d %8d %10.3f %10.3f %10.3f %12.1f %8.2f %8.2f%n",
+                    row.layer(), row.operation(), row.calls(), row.failures(), row.p50Ms(), row.p99Ms(),
+                    row.maxMs(), row.totalMs(), row.statementsPerCall(), row.rowsPerCall());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: RecordingSummary <recording.jfr>");
+            System.exit(2);
+        }
+        print(summarize(Path.of(args[0])), System.out);
+    }
+
+    private static String layerOf(String eventName) {
+        if (UserServiceEvent.NAME.equals(eventName)) {
+            return "service";
+        }
+        if (UserDaoEvent.NAME.equals(eventName)) {
+            return "dao";
+        }
+        return null;
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * quantile) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.userservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Вызов метода {@link org.example.userservice.dao.UserDao}. Без профиля {@code user-service.jfc}
+ * пишутся только вызовы дольше 20 мс.
+ */
+@Name(UserDaoEvent.NAME)
+@Label("User DAO Operation")
+@Category({"User Service", "DAO"})
+@StackTrace(false)
+@Threshold("20 ms")
+public final class UserDaoEvent extends OperationEvent {
+    public static final String NAME = "org.example.userservice.UserDaoOperation";
+}
@@ -0,0 +1,20 @@
+package org.example.userservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Операция {@link org.example.userservice.service.UserService}: обращение к DAO вместе с
+ * транзакцией и сроком, без проверки аргументов.
+ */
+@Name(UserServiceEvent.NAME)
+@Label("User Service Operation")
+@Category({"User Service", "Service"})
+@StackTrace(false)
+@Threshold("20 ms")
+public final class UserServiceEvent extends OperationEvent {
+    public static final String NAME = "org.example.userservice.UserServiceOperation";
+}
@@ -0,0 +1,216 @@
+package org.example.userservice.maintenance;
+
+import org.example.userservice.cache.UserChangeEvent;
+import org.example.userservice.cache.UserChangeListener;
+import org.example.userservice.util.HibernateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обслуживание помесячных секций user_service.users.
+ * <p>
+ * Заранее создаёт секции на несколько месяцев вперёд (иначе новые строки копятся
+ * в секции по умолчанию) и удаляет целые секции старше срока хранения: DETACH + DROP
+ * вместо DELETE не оставляет мёртвых строк и не требует VACUUM. Строки удаляемой секции
+ * не проходят через триггеры, поэтому реестр email чистится явно, а подписчики
+ * {@link UserChangeListener} получают сигнал пересинхронизации.
+ */
+public class UserPartitionManager implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(UserPartitionManager.class);
+
+    public static final int DEFAULT_MONTHS_AHEAD = 3;
+
+    private static final String PARTITION_PREFIX = "users_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    @FunctionalInterface
+    public interface ConnectionSource {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * Секция таблицы; у секции по умолчанию месяца нет.
+     */
+    public record Partition(String name, YearMonth month) {
+        public boolean isDefault() {
+            return month == null;
+        }
+    }
+
+    private final ConnectionSource connectionSource;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private ScheduledExecutorService scheduler;
+
+    public UserPartitionManager() {
+        this(HibernateUtil::openDedicatedConnection, DEFAULT_MONTHS_AHEAD, 0);
+    }
+
+    /**
+     * @param retentionMonths сколько месяцев хранить, считая текущий; 0 — хранить всё
+     */
+    public UserPartitionManager(ConnectionSource connectionSource, int monthsAhead, int retentionMonths) {
+        if (monthsAhead < 0) {
+            throw new IllegalArgumentException("Months ahead must not be negative. Received: " + monthsAhead);
+        }
+        if (retentionMonths < 0) {
+            throw new IllegalArgumentException("Retention months must not be negative. Received: " + retentionMonths);
+        }
+        this.connectionSource = connectionSource;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    /**
+     * Создаёт недостающие секции с текущего месяца на {@code monthsAhead} вперёд.
+     * Возвращает число созданных.
+     */
+    public int ensureFuturePartitions() {
+        try (Connection connection = connectionSource.open()) {
+            return ensureFuturePartitions(connection, monthsAhead);
+        } catch (SQLException e) {
+            logger.error("Error creating user partitions: {}", e.getMessage());
+            throw new RuntimeException("Failed to create user partitions", e);
+        }
+    }
+
+    /**
+     * Вариант на чужом соединении (например, сразу после миграций); соединение не закрывается.
+     */
+    public static int ensureFuturePartitions(Connection connection, int monthsAhead) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT user_service.ensure_users_partitions(CURRENT_DATE, ?)")) {
+            statement.setInt(1, monthsAhead);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                int created = rs.getInt(1);
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
+                }
+                if (created > 0) {
+                    logger.info("Created {} user partition(s)", created);
+                }
+                return created;
+            }
+        }
+    }
+
+    public List<Partition> listPartitions() {
+        try (Connection connection = connectionSource.open();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT c.relname FROM pg_inherits i "
+                             + "JOIN pg_class c ON c.oid = i.inhrelid "
+                             + "WHERE i.inhparent = 'user_service.users'::regclass "
+                             + "ORDER BY c.relname")) {
+            List<Partition> partitions = new ArrayList<>();
+            while (rs.next()) {
+                String name = rs.getString(1);
+                partitions.add(new Partition(name, monthOf(name)));
+            }
+            return partitions;
+        } catch (SQLException e) {
+            logger.error("Error listing user partitions: {}", e.getMessage());
+            throw new RuntimeException("Failed to list user partitions", e);
+        }
+    }
+
+    /**
+     * Отсоединяет и удаляет секции всех месяцев раньше {@code cutoff}.
+     * Возвращает имена удалённых секций.
+     */
+    public List<String> dropPartitionsBefore(YearMonth cutoff) {
+        List<String> dropped = new ArrayList<>();
+        for (Partition partition : listPartitions()) {
+            if (!partition.isDefault() && partition.month().isBefore(cutoff)) {
+                dropPartition(partition.name());
+                dropped.add(partition.name());
+            }
+        }
+        return dropped;
+    }
+
+    private void dropPartition(String name) {
+        try (Connection connection = connectionSource.open()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                // Имя пришло из каталога и соответствует шаблону секции, кавычки — на всякий случай
+                String table = "user_service.\"" + name + "\"";
+                statement.executeUpdate("DELETE FROM user_service.user_emails e USING " + table
+                        + " p WHERE e.user_id = p.id AND e.email_lower = lower(p.email)");
+                statement.execute("ALTER TABLE user_service.users DETACH PARTITION " + table);
+                statement.execute("DROP TABLE " + table);
+                statement.execute("SELECT pg_notify('" + UserChangeListener.CHANNEL + "', '"
+                        + UserChangeEvent.RESYNC + "')");
+                connection.commit();
+                logger.info("Dropped user partition {}", name);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Error dropping user partition {}: {}", name, e.getMessage());
+            throw new RuntimeException("Failed to drop user partition " + name, e);
+        }
+    }
+
+    /**
+     * Запускает периодическое обслуживание: создание секций и, если задан срок хранения, очистку.
+     */
+    public synchronized void start(Duration interval) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-partition-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::maintain, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void maintain() {
+        try {
+            ensureFuturePartitions();
+            if (retentionMonths > 0) {
+                dropPartitionsBefore(YearMonth.now().minusMonths(retentionMonths - 1));
+            }
+        } catch (Exception e) {
+            // Следующий запуск попробует снова; секция по умолчанию страхует вставки
+            logger.error("User partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    static YearMonth monthOf(String partitionName) {
+        if (!partitionName.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partitionName.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
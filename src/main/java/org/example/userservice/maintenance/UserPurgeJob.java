@@ -0,0 +1,121 @@
+package org.example.userservice.maintenance;
+
+import org.example.userservice.dao.UserDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Удаление пользователей, созданных раньше заданного момента, небольшими пачками.
+ * <p>
+ * Пачки идут по возрастанию id (keyset), каждая — отдельная короткая транзакция
+ * ({@link UserDao#deleteCreatedBefore}), между ними пауза: блокировки держатся недолго,
+ * WAL растёт равномерно, и задача может работать в рабочее время рядом с живым трафиком.
+ * Остановка по {@code maxRuntime} или прерыванию потока не теряет работы: последний
+ * обработанный id (контрольная точка) приходит в {@link Progress} после каждой пачки
+ * и возвращается в {@link Result}, с него запуск можно продолжить.
+ */
+public class UserPurgeJob {
+    private static final Logger logger = LoggerFactory.getLogger(UserPurgeJob.class);
+
+    public record Progress(long deleted, int chunks, Long checkpoint, Duration elapsed) {
+    }
+
+    /**
+     * @param completed {@code false}, если остановились по времени или прерыванию и есть что удалять дальше
+     */
+    public record Result(long deleted, int chunks, Long checkpoint, boolean completed, Duration elapsed) {
+    }
+
+    private final UserDao userDao;
+    private final int chunkSize;
+    private final Duration pause;
+    private final Duration maxRuntime;
+
+    public UserPurgeJob(UserDao userDao) {
+        this(userDao, 500, Duration.ofMillis(100), Duration.ofHours(1));
+    }
+
+    public UserPurgeJob(UserDao userDao, int chunkSize, Duration pause, Duration maxRuntime) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive. Received: " + chunkSize);
+        }
+        if (pause.isNegative()) {
+            throw new IllegalArgumentException("Pause must not be negative. Received: " + pause);
+        }
+        if (maxRuntime.isNegative() || maxRuntime.isZero()) {
+            throw new IllegalArgumentException("Max runtime must be positive. Received: " + maxRuntime);
+        }
+        this.userDao = userDao;
+        this.chunkSize = chunkSize;
+        this.pause = pause;
+        this.maxRuntime = maxRuntime;
+    }
+
+    public Result purgeCreatedBefore(LocalDateTime before) {
+        return purgeCreatedBefore(before, null, progress -> {
+        });
+    }
+
+    /**
+     * @param resumeAfterId контрольная точка прошлого запуска или {@code null}, чтобы начать сначала
+     * @param progress      вызывается после каждой пачки; удобно сохранять контрольную точку
+     */
+    public Result purgeCreatedBefore(LocalDateTime before, Long resumeAfterId, Consumer<Progress> progress) {
+        if (before == null) {
+            throw new IllegalArgumentException("Purge cutoff must not be null");
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + maxRuntime.toNanos();
+        Long checkpoint = resumeAfterId;
+        long deleted = 0;
+        int chunks = 0;
+        boolean completed = false;
+        logger.info("Purging users created before {} starting after id {}", before, resumeAfterId);
+
+        while (true) {
+            List<Long> ids = userDao.deleteCreatedBefore(before, checkpoint, chunkSize);
+            if (!ids.isEmpty()) {
+                chunks++;
+                deleted += ids.size();
+                checkpoint = ids.get(ids.size() - 1);
+                progress.accept(new Progress(deleted, chunks, checkpoint, Duration.ofNanos(System.nanoTime() - start)));
+            }
+            // Неполная пачка ещё не конец: подходящие строки, закоммиченные между пачками, могли
+            // лечь за контрольную точку, поэтому завершаемся только на пустой пачке
+            if (ids.isEmpty()) {
+                completed = true;
+                break;
+            }
+            if (System.nanoTime() + pause.toNanos() >= deadline || !sleep()) {
+                break;
+            }
+        }
+
+        Result result = new Result(deleted, chunks, checkpoint, completed, Duration.ofNanos(System.nanoTime() - start));
+        if (completed) {
+            logger.info("Purge finished: {} users deleted in {} chunks", deleted, chunks);
+        } else {
+            logger.info("Purge stopped at id {}: {} users deleted in {} chunks", checkpoint, deleted, chunks);
+        }
+        return result;
+    }
+
+    private boolean sleep() {
+        if (pause.isZero()) {
+            return !Thread.currentThread().isInterrupted();
+        }
+        try {
+            Thread.sleep(pause.toMillis(), pause.toNanosPart() % 1_000_000);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.example.userservice.model;
 
 import jakarta.persistence.*;
+import org.example.userservice.util.BlockSequence;
 import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
@@ -9,7 +10,7 @@ import java.time.LocalDateTime;
 @Table(name = "users", schema = "user_service")
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockSequence(schema = "user_service", sequence = "users_id_seq")
     @Column(name = "id", nullable = false)
     private Long id;
 
@@ -35,6 +36,22 @@ public class User {
         this.createdAt = LocalDateTime.now();
     }
 
+    public User(User other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.email = other.email;
+        this.age = other.age;
+        this.createdAt = other.createdAt;
+    }
+
+    // created_at — ключ секционирования и не может быть пустым
+    @PrePersist
+    void prePersist() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
     public Long getId() {
         return id;
     }
@@ -0,0 +1,38 @@
+package org.example.userservice.model;
+
+/**
+ * Набор изменённых полей пользователя. {@code null} означает "поле не меняется".
+ */
+public record UserPatch(String name, String email, Integer age) {
+
+    public static UserPatch of(User user) {
+        return new UserPatch(user.getName(), user.getEmail(), user.getAge());
+    }
+
+    /**
+     * Объединяет два изменения: непустые поля более нового изменения побеждают.
+     */
+    public UserPatch merge(UserPatch newer) {
+        return new UserPatch(
+                newer.name != null ? newer.name : name,
+                newer.email != null ? newer.email : email,
+                newer.age != null ? newer.age : age
+        );
+    }
+
+    public boolean isEmpty() {
+        return name == null && email == null && age == null;
+    }
+
+    public void applyTo(User user) {
+        if (name != null) {
+            user.setName(name);
+        }
+        if (email != null) {
+            user.setEmail(email);
+        }
+        if (age != null) {
+            user.setAge(age);
+        }
+    }
+}
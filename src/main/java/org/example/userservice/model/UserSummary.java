@@ -0,0 +1,7 @@
+package org.example.userservice.model;
+
+/**
+ * Лёгкая проекция пользователя для списков: без сущности, контекста персистентности и снимка.
+ */
+public record UserSummary(Long id, String name, String email) {
+}
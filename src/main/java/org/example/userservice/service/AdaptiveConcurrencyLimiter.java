@@ -0,0 +1,194 @@
+package org.example.userservice.service;
+
+import org.example.userservice.util.Deadline;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Адаптивный лимит одновременных вызовов (AIMD) с ограниченной очередью.
+ * <p>
+ * Быстрый успешный вызов при загруженном лимите увеличивает его примерно на единицу
+ * за «окно» из {@code limit} вызовов; медленный (дольше порога) или упавший вызов
+ * уменьшает лимит в {@value #BACKOFF_RATIO} раза. Сверх лимита вызовы ждут в очереди не дольше
+ * {@code maxQueueWait}; переполнение очереди и истёкшее ожидание — {@link ServiceOverloadedException}.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final double BACKOFF_RATIO = 0.9;
+
+    public record Stats(int limit, int inFlight, int queued, long admitted, long rejected,
+                        long queueTimeouts, double averageQueueMillis, double maxQueueMillis) {
+    }
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final long maxQueueWaitNanos;
+    private final long latencyThresholdNanos;
+
+    // Честная блокировка: ожидающие проходят примерно в порядке прихода
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition available = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private int queued;
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong queueTimeouts = new AtomicLong();
+    private final AtomicLong queuedCalls = new AtomicLong();
+    private final AtomicLong totalQueueNanos = new AtomicLong();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                                      int maxQueue, Duration maxQueueWait, Duration latencyThreshold) {
+        if (minLimit < 1 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("Limit bounds must satisfy 1 <= min <= max. Received: "
+                    + minLimit + ", " + maxLimit);
+        }
+        if (initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Initial limit must be between " + minLimit + " and " + maxLimit
+                    + ". Received: " + initialLimit);
+        }
+        if (maxQueue < 0) {
+            throw new IllegalArgumentException("Queue size must not be negative. Received: " + maxQueue);
+        }
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueue = maxQueue;
+        this.maxQueueWaitNanos = maxQueueWait.toNanos();
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+    }
+
+    /**
+     * Выполняет действие под лимитом. Ошибки валидации ({@link IllegalArgumentException})
+     * лимит не снижают — это не признак перегрузки.
+     */
+    public <T> T execute(Supplier<T> action) {
+        acquire();
+        long start = System.nanoTime();
+        boolean overloadSignal = false;
+        try {
+            return action.get();
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            overloadSignal = true;
+            throw e;
+        } finally {
+            release(System.nanoTime() - start, overloadSignal);
+        }
+    }
+
+    /**
+     * Занимает место под лимитом на срок, который определяет вызывающий (например, подписка
+     * на поток строк). Длительность такого вызова о нагрузке базы ничего не говорит, поэтому
+     * лимит при освобождении не меняется.
+     *
+     * @return освобождение места; повторные вызовы ничего не делают
+     */
+    public Runnable acquireHeld() {
+        acquire();
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                lock.lock();
+                try {
+                    inFlight--;
+                    available.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+    }
+
+    private void acquire() {
+        lock.lock();
+        try {
+            // Пока в очереди кто-то есть, новые вызовы не обгоняют его
+            if (queued == 0 && inFlight < currentLimit()) {
+                inFlight++;
+                admitted.incrementAndGet();
+                return;
+            }
+            if (queued >= maxQueue) {
+                rejected.incrementAndGet();
+                throw new ServiceOverloadedException(name, "concurrency limit " + currentLimit()
+                        + " reached and queue is full");
+            }
+
+            queued++;
+            long start = System.nanoTime();
+            // Ждать дольше срока вызова (Deadline) бессмысленно
+            long remaining = Math.min(maxQueueWaitNanos, Deadline.remaining());
+            try {
+                while (inFlight >= currentLimit()) {
+                    if (remaining <= 0) {
+                        queueTimeouts.incrementAndGet();
+                        rejected.incrementAndGet();
+                        Deadline.check("admission queue");
+                        throw new ServiceOverloadedException(name, "waited in queue longer than "
+                                + TimeUnit.NANOSECONDS.toMillis(maxQueueWaitNanos) + " ms");
+                    }
+                    remaining = available.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rejected.incrementAndGet();
+                throw new ServiceOverloadedException(name, "interrupted while waiting in queue");
+            } finally {
+                queued--;
+            }
+
+            inFlight++;
+            admitted.incrementAndGet();
+            long waited = System.nanoTime() - start;
+            queuedCalls.incrementAndGet();
+            totalQueueNanos.addAndGet(waited);
+            maxQueueNanos.accumulateAndGet(waited, Math::max);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long latencyNanos, boolean overloadSignal) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (overloadSignal || latencyNanos > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            } else if ((inFlight + 1) * 2 >= limit) {
+                // Растём только когда лимит действительно используется
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int currentLimit() {
+        return (int) limit;
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            long waitedCalls = queuedCalls.get();
+            return new Stats(currentLimit(), inFlight, queued, admitted.get(), rejected.get(), queueTimeouts.get(),
+                    waitedCalls == 0 ? 0 : totalQueueNanos.get() / 1_000_000.0 / waitedCalls,
+                    maxQueueNanos.get() / 1_000_000.0);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package org.example.userservice.service;
+
+import org.example.userservice.dao.JfrUserDao;
+import org.example.userservice.dao.UserDao;
+import org.example.userservice.dao.UserDaoImpl;
+import org.example.userservice.model.User;
+import org.example.userservice.model.UserPatch;
+import org.example.userservice.model.UserSummary;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link UserService} с контролем допуска: у каждого вида операций свой адаптивный лимит
+ * одновременных вызовов и своя ограниченная очередь, а за ними — общий лимит не больше пула
+ * соединений. Лимиты операций не дают одному виду запросов занять всю общую очередь, общий —
+ * не пускает к базе больше вызовов, чем есть соединений. Когда база замедляется, лимиты
+ * сжимаются, лишние запросы быстро получают {@link ServiceOverloadedException} вместо ожидания
+ * соединения из пула, и время ответа принятых запросов остаётся ограниченным.
+ * <p>
+ * Подписка {@link #streamAllUsers()} держит соединение, пока её не отменят или поток не
+ * кончится, поэтому занимает место в лимите LIST и в общем на всё это время.
+ */
+public class AdmissionControlledUserService extends UserService {
+
+    public enum Operation {
+        CREATE, READ, LIST, UPDATE, DELETE
+    }
+
+    // hibernate.connection.pool_size
+    private static final int POOL_SIZE = 10;
+
+    private final Map<Operation, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(Operation.class);
+    private final AdaptiveConcurrencyLimiter database;
+
+    public AdmissionControlledUserService() {
+        this(new JfrUserDao(new UserDaoImpl()));
+    }
+
+    // Каждый лимит стартует с размера пула соединений и не превышает его
+    public AdmissionControlledUserService(UserDao userDao) {
+        this(userDao, operation -> new AdaptiveConcurrencyLimiter(
+                operation.name(), POOL_SIZE, 1, POOL_SIZE, 50, Duration.ofMillis(500), Duration.ofMillis(250)));
+    }
+
+    public AdmissionControlledUserService(UserDao userDao,
+                                          Function<Operation, AdaptiveConcurrencyLimiter> limiterFactory) {
+        this(userDao, limiterFactory, new AdaptiveConcurrencyLimiter(
+                "DATABASE", POOL_SIZE, 1, POOL_SIZE, 100, Duration.ofMillis(500), Duration.ofMillis(250)));
+    }
+
+    /**
+     * @param database общий лимит всех операций; его верхняя граница — размер пула соединений
+     */
+    public AdmissionControlledUserService(UserDao userDao,
+                                          Function<Operation, AdaptiveConcurrencyLimiter> limiterFactory,
+                                          AdaptiveConcurrencyLimiter database) {
+        super(userDao);
+        for (Operation operation : Operation.values()) {
+            limiters.put(operation, limiterFactory.apply(operation));
+        }
+        this.database = database;
+    }
+
+    public Map<Operation, AdaptiveConcurrencyLimiter.Stats> stats() {
+        Map<Operation, AdaptiveConcurrencyLimiter.Stats> stats = new EnumMap<>(Operation.class);
+        limiters.forEach((operation, limiter) -> stats.put(operation, limiter.stats()));
+        return stats;
+    }
+
+    public AdaptiveConcurrencyLimiter.Stats databaseStats() {
+        return database.stats();
+    }
+
+    private <T> T admit(Operation operation, Supplier<T> call) {
+        return limiters.get(operation).execute(() -> database.execute(call));
+    }
+
+    @Override
+    public Long createUser(String name, String email, Integer age) {
+        return admit(Operation.CREATE, () -> super.createUser(name, email, age));
+    }
+
+    @Override
+    public Optional<User> getUserById(Long id) {
+        return admit(Operation.READ, () -> super.getUserById(id));
+    }
+
+    @Override
+    public UsersByIdResult getUsersByIds(Collection<Long> ids) {
+        return admit(Operation.READ, () -> super.getUsersByIds(ids));
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return admit(Operation.LIST, super::getAllUsers);
+    }
+
+    @Override
+    public List<UserSummary> getUserSummaries() {
+        return admit(Operation.LIST, () -> super.getUserSummaries());
+    }
+
+    @Override
+    public List<UserSummary> getUserSummaries(Long afterId, int limit) {
+        return admit(Operation.LIST, () -> super.getUserSummaries(afterId, limit));
+    }
+
+    @Override
+    public List<User> getUsersCreatedBetween(LocalDateTime from, LocalDateTime to) {
+        return admit(Operation.LIST, () -> super.getUsersCreatedBetween(from, to));
+    }
+
+    @Override
+    public long countUsersCreatedBetween(LocalDateTime from, LocalDateTime to) {
+        return admit(Operation.LIST, () -> super.countUsersCreatedBetween(from, to));
+    }
+
+    @Override
+    public boolean updateUser(Long id, String name, String email, Integer age) {
+        return admit(Operation.UPDATE, () -> super.updateUser(id, name, email, age));
+    }
+
+    @Override
+    public UsersUpdateResult updateUsers(Map<Long, UserPatch> patches) {
+        return admit(Operation.UPDATE, () -> super.updateUsers(patches));
+    }
+
+    @Override
+    public boolean deleteUser(Long id) {
+        return admit(Operation.DELETE, () -> super.deleteUser(id));
+    }
+
+    @Override
+    public Flow.Publisher<User> streamAllUsers() {
+        Flow.Publisher<User> publisher = super.streamAllUsers();
+        return subscriber -> {
+            Runnable release;
+            try {
+                release = holdPermits();
+            } catch (ServiceOverloadedException e) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                    }
+
+                    @Override
+                    public void cancel() {
+                    }
+                });
+                subscriber.onError(e);
+                return;
+            }
+            publisher.subscribe(new ReleasingSubscriber<>(subscriber, release));
+        };
+    }
+
+    private Runnable holdPermits() {
+        Runnable releaseList = limiters.get(Operation.LIST).acquireHeld();
+        try {
+            Runnable releaseDatabase = database.acquireHeld();
+            return () -> {
+                releaseDatabase.run();
+                releaseList.run();
+            };
+        } catch (RuntimeException e) {
+            releaseList.run();
+            throw e;
+        }
+    }
+
+    // Освобождает места в лимитах, когда подписка кончилась: завершение, ошибка или отмена
+    private static final class ReleasingSubscriber<T> implements Flow.Subscriber<T> {
+        private final Flow.Subscriber<? super T> delegate;
+        private final Runnable release;
+
+        private ReleasingSubscriber(Flow.Subscriber<? super T> delegate, Runnable release) {
+            this.delegate = delegate;
+            this.release = release;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            delegate.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    subscription.request(n);
+                }
+
+                @Override
+                public void cancel() {
+                    subscription.cancel();
+                    release.run();
+                }
+            });
+        }
+
+        @Override
+        public void onNext(T item) {
+            delegate.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            release.run();
+            delegate.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            release.run();
+            delegate.onComplete();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.userservice.service;
+
+/**
+ * Запрос отклонён без обращения к базе: лимит одновременных операций исчерпан,
+ * а очередь полна или ожидание в ней превысило срок. Повтор имеет смысл позже.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+    private final String operation;
+
+    public ServiceOverloadedException(String operation, String message) {
+        super("Service overloaded (" + operation + "): " + message);
+        this.operation = operation;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+}
@@ -1,29 +1,80 @@
 package org.example.userservice.service;
 
+import org.example.userservice.dao.JfrUserDao;
+import org.example.userservice.dao.TransactionRetry;
 import org.example.userservice.dao.UserDaoImpl;
 import org.example.userservice.dao.UserDao;
+import org.example.userservice.jfr.OperationEvents;
 import org.example.userservice.model.User;
+import org.example.userservice.model.UserPatch;
+import org.example.userservice.model.UserSummary;
+import org.example.userservice.util.Deadline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.Optional;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 public class UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
     private final UserDao userDao;
+    private final Duration defaultTimeout;
+    private final Map<String, Duration> operationTimeouts;
+    private final TransactionRetry transactions;
 
     private static final Pattern EMAIL_PATTERN =
             Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
     private static final Pattern NAME_PATTERN =
             Pattern.compile("^[a-zA-Zа-яА-ЯёЁ\\s\\-']{2,100}$");
+    private static final int MAX_PAGE_SIZE = 1000;
 
     public UserService() {
-        this.userDao = new UserDaoImpl();
+        this(new JfrUserDao(new UserDaoImpl()));
     }
 
     public UserService(UserDao userDao) {
+        this(userDao, null, Map.of());
+    }
+
+    /**
+     * @param defaultTimeout    срок вызова по умолчанию или {@code null} — без срока
+     * @param operationTimeouts сроки отдельных операций по имени метода ({@code "getUserById"} и т.п.)
+     */
+    public UserService(UserDao userDao, Duration defaultTimeout, Map<String, Duration> operationTimeouts) {
+        this(userDao, defaultTimeout, operationTimeouts, new TransactionRetry());
+    }
+
+    /**
+     * @param transactions повтор единиц работы создания, изменения и удаления при временных ошибках базы
+     */
+    public UserService(UserDao userDao, Duration defaultTimeout, Map<String, Duration> operationTimeouts,
+                       TransactionRetry transactions) {
         this.userDao = userDao;
+        this.defaultTimeout = defaultTimeout;
+        this.operationTimeouts = Map.copyOf(operationTimeouts);
+        this.transactions = transactions;
+    }
+
+    // Срок, заданный вызывающим через Deadline.within, может только сократить срок по умолчанию.
+    // Обращение к DAO вместе со сроком пишется событием JFR
+    private <T> T withDeadline(String operation, Supplier<T> work) {
+        Duration budget = operationTimeouts.getOrDefault(operation, defaultTimeout);
+        return OperationEvents.service(operation,
+                () -> budget == null ? work.get() : Deadline.within(budget, work));
     }
 
     private void validateName(String name) {
@@ -68,6 +119,11 @@ public class UserService {
         }
     }
 
+    // Email хранится в нижнем регистре: так работает уникальный индекс по lower(email)
+    private static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
     private void validateAge(Integer age) {
         if (age == null) {
             throw new IllegalArgumentException(
@@ -103,71 +159,220 @@ public class UserService {
         validateName(name);
         validateEmail(email);
         validateAge(age);
+        String normalizedEmail = normalizeEmail(email);
 
-        Optional<User> existingUser = userDao.findByEmail(email);
-        if (existingUser.isPresent()) {
-            throw new IllegalArgumentException("User with email " + email + " already exists");
-        }
+        return withDeadline("createUser", () -> transactions.execute(() -> {
+            Optional<User> existingUser = userDao.findByEmail(normalizedEmail);
+            if (existingUser.isPresent()) {
+                throw new IllegalArgumentException("User with email " + email + " already exists");
+            }
 
-        User user = new User(name, email, age);
-        return userDao.save(user);
+            User user = new User(name, normalizedEmail, age);
+            return userDao.save(user);
+        }));
     }
 
     public Optional<User> getUserById(Long id) {
         logger.info("Attempting to get user with ID: {}", id);
 
         validateId(id);
-        return userDao.findById(id);
+        return withDeadline("getUserById", () -> userDao.findById(id));
+    }
+
+    public UsersByIdResult getUsersByIds(Collection<Long> ids) {
+        logger.info("Attempting to get {} users by ID", ids == null ? 0 : ids.size());
+
+        if (ids == null) {
+            throw new IllegalArgumentException("ID list cannot be null");
+        }
+        // Дубликаты запрашиваем один раз, порядок первого появления сохраняется
+        LinkedHashSet<Long> uniqueIds = new LinkedHashSet<>();
+        for (Long id : ids) {
+            validateId(id);
+            uniqueIds.add(id);
+        }
+
+        Map<Long, User> found = withDeadline("getUsersByIds", () -> userDao.findAllById(uniqueIds)).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<User> users = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : uniqueIds) {
+            User user = found.get(id);
+            if (user != null) {
+                users.add(user);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new UsersByIdResult(users, missingIds);
     }
 
     public List<User> getAllUsers() {
         logger.info("Attempting to get all users");
 
-        return userDao.findAll();
+        return withDeadline("getAllUsers", userDao::findAll);
+    }
+
+    /**
+     * Все пользователи потоком по возрастанию id: строки читаются из базы по мере спроса
+     * подписчика. Таймаут операций к подписке не применяется — её длительность задаёт подписчик.
+     */
+    public Flow.Publisher<User> streamAllUsers() {
+        logger.info("Attempting to stream all users");
+
+        return userDao.streamAll();
+    }
+
+    public List<UserSummary> getUserSummaries() {
+        logger.info("Attempting to get user summaries");
+
+        return withDeadline("getUserSummaries", userDao::findSummaries);
     }
 
+    public List<UserSummary> getUserSummaries(Long afterId, int limit) {
+        logger.info("Attempting to get user summaries after ID: {}, limit: {}", afterId, limit);
+
+        if (afterId != null && afterId < 0) {
+            throw new IllegalArgumentException("Cursor ID cannot be negative");
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException(
+                    "Page size must be between 1 and " + MAX_PAGE_SIZE + ". Received: " + limit
+            );
+        }
+        return withDeadline("getUserSummaries", () -> userDao.findSummariesAfter(afterId, limit));
+    }
+
+    public List<User> getUsersCreatedBetween(LocalDateTime from, LocalDateTime to) {
+        logger.info("Attempting to get users created between {} and {}", from, to);
+
+        validateCreatedRange(from, to);
+        return withDeadline("getUsersCreatedBetween", () -> userDao.findByCreatedBetween(from, to));
+    }
+
+    public long countUsersCreatedBetween(LocalDateTime from, LocalDateTime to) {
+        logger.info("Attempting to count users created between {} and {}", from, to);
+
+        validateCreatedRange(from, to);
+        return withDeadline("countUsersCreatedBetween", () -> userDao.countByCreatedBetween(from, to));
+    }
+
+    private void validateCreatedRange(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Date range bounds cannot be null");
+        }
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Range start must be before range end. Received: " + from + " - " + to);
+        }
+    }
+
+    /**
+     * Меняет только переданные поля: в DAO уходит {@link UserPatch}, а не вся строка, поэтому
+     * одновременные изменения разных полей одного пользователя не затирают друг друга.
+     * Прочитанная сущность не меняется: иначе её сброс записал бы и остальные поля как прочитаны.
+     */
     public boolean updateUser(Long id, String name, String email, Integer age) {
         logger.info("Attempting to update user with ID: {}", id);
 
         validateId(id);
 
-        Optional<User> userOpt = userDao.findById(id);
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
+        return withDeadline("updateUser", () -> transactions.execute(() -> {
+            Optional<User> userOpt = userDao.findById(id);
+            if (userOpt.isPresent()) {
+                User user = userOpt.get();
+
+                String changedEmail = null;
+                if (email != null && !normalizeEmail(email).equals(user.getEmail())) {
+                    validateEmail(email);
+                    String normalizedEmail = normalizeEmail(email);
+                    Optional<User> existingUser = userDao.findByEmail(normalizedEmail);
+                    if (existingUser.isPresent() && !existingUser.get().getId().equals(id)) {
+                        throw new IllegalArgumentException("Email already exists");
+                    }
+                    changedEmail = normalizedEmail;
+                }
 
-            if (email != null && !email.equals(user.getEmail())) {
-                Optional<User> existingUser = userDao.findByEmail(email);
-                if (existingUser.isPresent() && !existingUser.get().getId().equals(id)) {
-                    throw new IllegalArgumentException("Email already exists");
+                if (name != null) {
+                    validateName(name);
                 }
-                validateEmail(email);
-                user.setEmail(email);
+                if (age != null) {
+                    validateAge(age);
+                }
+
+                UserPatch patch = new UserPatch(name, changedEmail, age);
+                if (patch.isEmpty()) {
+                    return true;
+                }
+                return userDao.updateAll(Map.of(id, patch)).contains(id);
             }
+            return false;
+        }));
+    }
 
-            if (name != null) {
-                validateName(name);
-                user.setName(name);
+    /**
+     * Меняет поля многих пользователей одной транзакцией, несколькими выражениями на всю пачку
+     * вместо чтения и записи по каждому. Поля проверяются так же, как в {@link #updateUser};
+     * ошибка в любом изменении отклоняет всю пачку. Занятость email проверяет база: конфликт
+     * с другим пользователем откатывает всю пачку.
+     */
+    public UsersUpdateResult updateUsers(Map<Long, UserPatch> patches) {
+        logger.info("Attempting to update {} users", patches == null ? 0 : patches.size());
+
+        if (patches == null) {
+            throw new IllegalArgumentException("Patch map cannot be null");
+        }
+        Map<Long, UserPatch> normalized = new LinkedHashMap<>();
+        Set<String> emails = new HashSet<>();
+        for (Map.Entry<Long, UserPatch> entry : patches.entrySet()) {
+            validateId(entry.getKey());
+            UserPatch patch = entry.getValue();
+            if (patch == null) {
+                throw new IllegalArgumentException("Patch cannot be null. User ID: " + entry.getKey());
+            }
+            String email = null;
+            if (patch.email() != null) {
+                validateEmail(patch.email());
+                email = normalizeEmail(patch.email());
+                if (!emails.add(email)) {
+                    throw new IllegalArgumentException("Email already exists");
+                }
+            }
+            if (patch.name() != null) {
+                validateName(patch.name());
             }
-            if (age != null) {
-                validateAge(age);
-                user.setAge(age);
+            if (patch.age() != null) {
+                validateAge(patch.age());
             }
+            normalized.put(entry.getKey(), new UserPatch(patch.name(), email, patch.age()));
+        }
+        if (normalized.isEmpty()) {
+            return new UsersUpdateResult(List.of(), List.of());
+        }
 
-            userDao.update(user);
-            return true;
+        Set<Long> updated = withDeadline("updateUsers", () -> userDao.updateAll(normalized));
+        List<Long> updatedIds = new ArrayList<>(updated.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : normalized.keySet()) {
+            if (updated.contains(id)) {
+                updatedIds.add(id);
+            } else {
+                missingIds.add(id);
+            }
         }
-        return false;
+        return new UsersUpdateResult(updatedIds, missingIds);
     }
 
     public boolean deleteUser(Long id) {
         logger.info("Attempting to delete user with ID: {}", id);
         validateId(id);
 
-        Optional<User> userOpt = userDao.findById(id);
-        if (userOpt.isPresent()) {
-            userDao.delete(id);
-            return true;
-        }
-        return false;
+        return withDeadline("deleteUser", () -> transactions.execute(() -> {
+            Optional<User> userOpt = userDao.findById(id);
+            if (userOpt.isPresent()) {
+                userDao.delete(id);
+                return true;
+            }
+            return false;
+        }));
     }
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package org.example.userservice.service;
+
+import org.example.userservice.model.User;
+
+import java.util.List;
+
+/**
+ * Результат загрузки пользователей по набору id: найденные в порядке запроса и отсутствующие id.
+ */
+public record UsersByIdResult(List<User> users, List<Long> missingIds) {
+}
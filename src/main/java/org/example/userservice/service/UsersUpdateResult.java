@@ -0,0 +1,9 @@
+package org.example.userservice.service;
+
+import java.util.List;
+
+/**
+ * Результат массового изменения: обновлённые и отсутствующие id в порядке запроса.
+ */
+public record UsersUpdateResult(List<Long> updatedIds, List<Long> missingIds) {
+}
@@ -0,0 +1,88 @@
+package org.example.userservice.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Выдача id из блоков, полученных у последовательности базы.
+ * <p>
+ * Внутри блока id выдаются без блокировок — одним {@code getAndIncrement}. Когда блок
+ * кончился, новый запрашивает только один поток, остальные ждут его и продолжают с нового
+ * блока. Размер блока — меньшее из настроенного и шага последовательности: взять больше
+ * шага значило бы залезть в блок другого экземпляра.
+ */
+public final class BlockIdAllocator {
+
+    /**
+     * Источник блоков: следующее значение последовательности и её шаг.
+     */
+    @FunctionalInterface
+    public interface BlockSource {
+        Range nextBlock();
+    }
+
+    public record Range(long start, long size) {
+    }
+
+    public record Stats(long allocated, long blocksFetched, long blockSize) {
+    }
+
+    private static final class Block {
+        private final long end;
+        private final AtomicLong next;
+
+        private Block(long start, long size) {
+            this.end = start + size;
+            this.next = new AtomicLong(start);
+        }
+    }
+
+    private final int blockSize;
+    private final ReentrantLock refillLock = new ReentrantLock();
+    private final AtomicLong allocated = new AtomicLong();
+    private final AtomicLong blocksFetched = new AtomicLong();
+    private volatile Block current;
+    private volatile long effectiveBlockSize;
+
+    public BlockIdAllocator(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive. Received: " + blockSize);
+        }
+        this.blockSize = blockSize;
+        this.effectiveBlockSize = blockSize;
+    }
+
+    public long next(BlockSource source) {
+        while (true) {
+            Block block = current;
+            if (block != null) {
+                long id = block.next.getAndIncrement();
+                if (id < block.end) {
+                    allocated.incrementAndGet();
+                    return id;
+                }
+            }
+            refill(block, source);
+        }
+    }
+
+    private void refill(Block exhausted, BlockSource source) {
+        refillLock.lock();
+        try {
+            // Пока ждали блокировку, блок мог уже обновить другой поток
+            if (current == exhausted) {
+                Range range = source.nextBlock();
+                long size = Math.max(1, Math.min(blockSize, range.size()));
+                effectiveBlockSize = size;
+                current = new Block(range.start(), size);
+                blocksFetched.incrementAndGet();
+            }
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(allocated.get(), blocksFetched.get(), effectiveBlockSize);
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.userservice.util;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Id из блоков последовательности ({@link BlockSequenceGenerator}) вместо IDENTITY:
+ * id известен до INSERT, поэтому вставки уходят JDBC-батчем.
+ */
+@IdGeneratorType(BlockSequenceGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface BlockSequence {
+    String schema();
+
+    String sequence();
+
+    /**
+     * Размер блока; переопределяется свойством {@value BlockSequenceGenerator#BLOCK_SIZE}.
+     * Больше шага последовательности не бывает.
+     */
+    int blockSize() default 50;
+}
@@ -0,0 +1,87 @@
+package org.example.userservice.util;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.generator.GeneratorCreationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Member;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.EnumSet;
+
+/**
+ * Генератор Hibernate для {@link BlockSequence}: id выдаёт {@link BlockIdAllocator}, новый блок —
+ * один запрос {@code nextval} вместе с текущим шагом последовательности на соединении сессии.
+ * Один экземпляр на SessionFactory, поэтому блок общий для всех сессий процесса.
+ */
+public class BlockSequenceGenerator implements BeforeExecutionGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(BlockSequenceGenerator.class);
+
+    public static final String BLOCK_SIZE = "userservice.id.block_size";
+
+    private final String schema;
+    private final String sequence;
+    private final String nextBlockSql;
+    private final BlockIdAllocator allocator;
+
+    public BlockSequenceGenerator(BlockSequence config, Member member, GeneratorCreationContext context) {
+        this.schema = config.schema();
+        this.sequence = config.sequence();
+        // Шаг читается при каждом запросе блока: после ALTER SEQUENCE ... INCREMENT BY
+        // экземпляры подстраиваются без перезапуска
+        this.nextBlockSql = "SELECT nextval('" + schema + "." + sequence + "'), "
+                + "(SELECT increment_by FROM pg_sequences WHERE schemaname = '" + schema
+                + "' AND sequencename = '" + sequence + "')";
+        int blockSize = context.getServiceRegistry().requireService(ConfigurationService.class)
+                .getSetting(BLOCK_SIZE, value -> Integer.valueOf(String.valueOf(value)), config.blockSize());
+        this.allocator = new BlockIdAllocator(blockSize);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        return allocator.next(() -> fetchBlock(session));
+    }
+
+    private BlockIdAllocator.Range fetchBlock(SharedSessionContractImplementor session) {
+        JdbcCoordinator jdbc = session.getJdbcCoordinator();
+        PreparedStatement statement = jdbc.getStatementPreparer().prepareStatement(nextBlockSql);
+        try {
+            ResultSet rs = jdbc.getResultSetReturn().extract(statement, nextBlockSql);
+            try {
+                rs.next();
+                long start = rs.getLong(1);
+                long increment = rs.getLong(2);
+                if (rs.wasNull()) {
+                    // Шаг не виден (нет прав на pg_sequences) — безопасно только по одному id
+                    increment = 1;
+                }
+                logger.debug("Fetched id block from {}.{}: start {}, increment {}", schema, sequence, start, increment);
+                return new BlockIdAllocator.Range(start, increment);
+            } finally {
+                jdbc.getLogicalConnection().getResourceRegistry().release(rs, statement);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to fetch id block from " + schema + "." + sequence, e);
+        } finally {
+            jdbc.getLogicalConnection().getResourceRegistry().release(statement);
+            jdbc.afterStatementExecution();
+        }
+    }
+
+    public BlockIdAllocator.Stats stats() {
+        return allocator.stats();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.userservice.util;
+
+import org.example.userservice.dao.SqlStateClassifier;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Срок выполнения вызова для текущего потока.
+ * <p>
+ * {@link #within(Duration, Supplier)} задаёт бюджет на работу; вложенный вызов может только
+ * сократить срок внешнего. Остаток срока использует {@link UnitOfWork}: проверяет его перед
+ * каждым обращением DAO и передаёт в базу как {@code statement_timeout} и таймаут запросов
+ * Hibernate. Отмена запроса по таймауту и истёкший срок превращаются в
+ * {@link DeadlineExceededException}.
+ */
+public final class Deadline {
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final Duration budget;
+    private final long deadlineNanos;
+
+    private Deadline(Duration budget, long deadlineNanos) {
+        this.budget = budget;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    public static <T> T within(Duration budget, Supplier<T> work) {
+        if (budget.isNegative() || budget.isZero()) {
+            throw new IllegalArgumentException("Deadline budget must be positive. Received: " + budget);
+        }
+
+        Deadline outer = CURRENT.get();
+        long deadlineNanos = System.nanoTime() + budget.toNanos();
+        if (outer != null && outer.deadlineNanos - deadlineNanos <= 0) {
+            // Внешний срок строже — он и действует
+            return work.get();
+        }
+
+        Deadline deadline = new Deadline(budget, deadlineNanos);
+        CURRENT.set(deadline);
+        try {
+            return work.get();
+        } catch (DeadlineExceededException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            if (SqlStateClassifier.isTimeout(e) || deadline.remainingNanos() <= 0) {
+                throw new DeadlineExceededException(budget, e.getMessage(), e);
+            }
+            throw e;
+        } finally {
+            if (outer != null) {
+                CURRENT.set(outer);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    public static void run(Duration budget, Runnable work) {
+        within(budget, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Остаток срока в наносекундах; {@link Long#MAX_VALUE}, если срок не задан.
+     */
+    public static long remaining() {
+        Deadline deadline = CURRENT.get();
+        return deadline == null ? Long.MAX_VALUE : deadline.remainingNanos();
+    }
+
+    /**
+     * Бросает {@link DeadlineExceededException}, если срок уже истёк.
+     */
+    public static void check(String step) {
+        Deadline deadline = CURRENT.get();
+        if (deadline != null && deadline.remainingNanos() <= 0) {
+            throw new DeadlineExceededException(deadline.budget, "no time left for " + step, null);
+        }
+    }
+
+    private long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+}
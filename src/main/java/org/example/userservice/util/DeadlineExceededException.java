@@ -0,0 +1,20 @@
+package org.example.userservice.util;
+
+import java.time.Duration;
+
+/**
+ * Вызов не уложился в отведённое время ({@link Deadline}). Работа прервана:
+ * запрос отменён базой или следующий шаг не начат, транзакция откачена.
+ */
+public class DeadlineExceededException extends RuntimeException {
+    private final Duration budget;
+
+    public DeadlineExceededException(Duration budget, String message, Throwable cause) {
+        super("Deadline of " + budget.toMillis() + " ms exceeded: " + message, cause);
+        this.budget = budget;
+    }
+
+    public Duration getBudget() {
+        return budget;
+    }
+}
@@ -1,14 +1,76 @@
 package org.example.userservice.util;
 
+import org.hibernate.Session;
+import org.hibernate.SessionEventListener;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.boot.Metadata;
 import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.example.userservice.jfr.OperationEvents;
+import org.example.userservice.maintenance.UserPartitionManager;
 import org.example.userservice.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 public class HibernateUtil {
-    private static SessionFactory sessionFactory;
+    public static final String MIGRATIONS_ENABLED = "userservice.migrations.enabled";
+
+    private static final Logger logger = LoggerFactory.getLogger(HibernateUtil.class);
+    private static final Duration DEFAULT_DRAIN_TIMEOUT = Duration.ofSeconds(30);
+    private static final long DRAIN_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * @param buildTime       построение и прогрев новой фабрики
+     * @param drainTime       от переключения до закрытия старой
+     * @param drainedSessions сессии старой фабрики, завершившиеся до её закрытия
+     * @param abandoned       сессии, ещё открытые к концу ожидания (закрыты вместе с фабрикой)
+     */
+    public record SwapResult(Duration buildTime, Duration drainTime, int drainedSessions, int abandoned) {
+    }
+
+    public record Stats(long swaps, long failedSwaps, long drainedSessions, long abandonedSessions,
+                        Duration lastBuildTime, Duration lastDrainTime, int openSessions) {
+    }
+
+    private static volatile Generation current;
+    // Настройки последней замены поверх hibernate.properties и системных свойств
+    private static volatile Map<String, Object> overrides = Map.of();
+
+    private static final ExecutorService swapExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-factory-swap");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final AtomicLong swaps = new AtomicLong();
+    private static final AtomicLong failedSwaps = new AtomicLong();
+    private static final AtomicLong drainedSessions = new AtomicLong();
+    private static final AtomicLong abandonedSessions = new AtomicLong();
+    private static volatile long lastBuildNanos;
+    private static volatile long lastDrainNanos;
+
+    private static final List<Runnable> shutdownHooks = new CopyOnWriteArrayList<>();
+    private static final List<Runnable> resetHooks = new CopyOnWriteArrayList<>();
 
 //    public static SessionFactory getSessionFactory() {
 //        if (sessionFactory == null) {
@@ -31,40 +93,325 @@ public class HibernateUtil {
 //    }
 
     public static SessionFactory getSessionFactory() {
-        if (sessionFactory == null) {
-            //System.out.println("Creating new SessionFactory");
+        return current().factory;
+    }
+
+    /**
+     * Открывает сессию на текущей SessionFactory и учитывает её до закрытия: при
+     * {@link #swapSessionFactory} старая фабрика закрывается только после таких сессий.
+     */
+    public static Session openSession() {
+        while (true) {
+            Generation generation = current();
+            if (generation.acquire()) {
+                Session session;
+                try {
+                    session = generation.factory.withOptions().eventListeners(generation.tracker()).openSession();
+                } catch (RuntimeException e) {
+                    generation.release();
+                    throw e;
+                }
+                return session;
+            }
+            // Фабрику как раз закрыли после замены — берём новую
+        }
+    }
+
+    public static StatelessSession openStatelessSession() {
+        while (true) {
+            Generation generation = current();
+            if (generation.acquire()) {
+                StatelessSession session;
+                try {
+                    session = generation.factory.openStatelessSession();
+                } catch (RuntimeException e) {
+                    generation.release();
+                    throw e;
+                }
+                // У StatelessSessionBuilder нет eventListeners(), но закрытие так же вызывает end()
+                ((SharedSessionContractImplementor) session).getEventListenerManager().addListener(generation.tracker());
+                return session;
+            }
+        }
+    }
+
+    /**
+     * Заменяет SessionFactory без остановки: в фоне строит новую с {@code settings} поверх
+     * текущих настроек (например, новый пароль или размер пула), прогревает её запросом,
+     * атомарно переключает на неё новые сессии, ждёт до {@code drainTimeout}, пока закроются
+     * открытые на старой, и закрывает её. Если новая фабрика не построилась, работа
+     * продолжается на старой, а future завершается ошибкой. Замены выполняются по очереди.
+     */
+    public static CompletableFuture<SwapResult> swapSessionFactory(Map<String, ?> settings, Duration drainTimeout) {
+        if (drainTimeout.isNegative()) {
+            throw new IllegalArgumentException("Drain timeout must not be negative. Received: " + drainTimeout);
+        }
+        Map<String, Object> requested = Map.copyOf(settings);
+        return CompletableFuture.supplyAsync(() -> swap(requested, drainTimeout), swapExecutor);
+    }
+
+    public static CompletableFuture<SwapResult> swapSessionFactory(Map<String, ?> settings) {
+        return swapSessionFactory(settings, DEFAULT_DRAIN_TIMEOUT);
+    }
+
+    public static Stats stats() {
+        Generation generation = current;
+        return new Stats(swaps.get(), failedSwaps.get(), drainedSessions.get(), abandonedSessions.get(),
+                Duration.ofNanos(lastBuildNanos), Duration.ofNanos(lastDrainNanos),
+                generation == null ? 0 : Math.max(0, generation.sessions.get()));
+    }
+
+    private static SwapResult swap(Map<String, Object> requested, Duration drainTimeout) {
+        long start = System.nanoTime();
+        Map<String, Object> merged = new HashMap<>(overrides);
+        merged.putAll(requested);
+
+        SessionFactory factory;
+        try {
+            factory = buildSessionFactory(merged);
             try {
-                StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
-                        .build();
+                warmUp(factory);
+            } catch (RuntimeException e) {
+                factory.close();
+                throw e;
+            }
+        } catch (RuntimeException e) {
+            failedSwaps.incrementAndGet();
+            logger.error("SessionFactory swap failed, keeping the current one", e);
+            throw e;
+        }
+        long built = System.nanoTime();
 
-                MetadataSources sources = new MetadataSources(registry)
-                        .addAnnotatedClass(User.class);
+        Generation previous;
+        synchronized (HibernateUtil.class) {
+            previous = current;
+            current = new Generation(factory);
+            overrides = Map.copyOf(merged);
+        }
+        logger.info("Switched to new SessionFactory in {} ms", TimeUnit.NANOSECONDS.toMillis(built - start));
 
-                Metadata metadata = sources.getMetadataBuilder().build();
-                sessionFactory = metadata.getSessionFactoryBuilder().build();
+        int drained = 0;
+        int abandoned = 0;
+        if (previous != null) {
+            drained = Math.max(0, previous.sessions.get());
+            abandoned = previous.drain(drainTimeout);
+            drained -= abandoned;
+            if (abandoned > 0) {
+                logger.warn("Closing old SessionFactory with {} sessions still open after {}", abandoned, drainTimeout);
+            }
+            previous.factory.close();
+        }
+        long finished = System.nanoTime();
 
+        swaps.incrementAndGet();
+        drainedSessions.addAndGet(drained);
+        abandonedSessions.addAndGet(abandoned);
+        lastBuildNanos = built - start;
+        lastDrainNanos = finished - built;
+        logger.info("Old SessionFactory closed: {} sessions drained in {} ms", drained,
+                TimeUnit.NANOSECONDS.toMillis(finished - built));
+        return new SwapResult(Duration.ofNanos(built - start), Duration.ofNanos(finished - built), drained, abandoned);
+    }
+
+    // Первый запрос проверяет подключение с новыми настройками и заполняет пул и кэш планов
+    private static void warmUp(SessionFactory factory) {
+        factory.inTransaction(session -> session
+                .createSelectionQuery("SELECT count(u) FROM User u WHERE u.id = :id", Long.class)
+                .setParameter("id", 0L)
+                .getSingleResult());
+    }
+
+    private static Generation current() {
+        Generation generation = current;
+        if (generation != null && !generation.factory.isClosed()) {
+            return generation;
+        }
+        synchronized (HibernateUtil.class) {
+            if (current == null || current.factory.isClosed()) {
+                current = new Generation(buildSessionFactory(overrides));
+            }
+            return current;
+        }
+    }
+
+    private static SessionFactory buildSessionFactory(Map<String, Object> settings) {
+        try {
+            StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                    .applySettings(settings)
+                    .build();
+            try {
+                migrateSchema(registry);
             } catch (Exception e) {
-                e.printStackTrace();
-                throw new RuntimeException("Failed to create SessionFactory", e);
+                StandardServiceRegistryBuilder.destroy(registry);
+                throw e;
             }
-        } else if (sessionFactory.isClosed()) {
-            //System.out.println("SessionFactory was closed, recreating...");
-            sessionFactory = null;
-            return getSessionFactory();
+
+            MetadataSources sources = new MetadataSources(registry)
+                    .addAnnotatedClass(User.class);
+
+            Metadata metadata = sources.getMetadataBuilder().build();
+            return metadata.getSessionFactoryBuilder().build();
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException("Failed to create SessionFactory", e);
+        }
+    }
+
+    /**
+     * Открывает отдельное JDBC-соединение мимо пула Hibernate с теми же настройками
+     * (hibernate.properties и системные свойства). Закрывает его вызывающий.
+     */
+    public static Connection openDedicatedConnection() throws SQLException {
+        Map<String, Object> settings = new StandardServiceRegistryBuilder().applySettings(overrides).getSettings();
+        return DriverManager.getConnection(
+                String.valueOf(settings.get("hibernate.connection.url")),
+                String.valueOf(settings.get("hibernate.connection.username")),
+                String.valueOf(settings.get("hibernate.connection.password"))
+        );
+    }
+
+    /**
+     * Регистрирует действие, которое выполняется перед закрытием SessionFactory
+     * (например, сброс отложенных записей).
+     */
+    public static void registerShutdownHook(Runnable hook) {
+        shutdownHooks.add(hook);
+    }
+
+    public static void unregisterShutdownHook(Runnable hook) {
+        shutdownHooks.remove(hook);
+    }
+
+    /**
+     * Регистрирует действие, которое выполняется перед {@link #resetSessionFactory()}. В отличие от
+     * хуков завершения, владелец продолжает работать с новой фабрикой, поэтому здесь, например,
+     * сбрасывают отложенные записи, но не закрываются.
+     */
+    public static void registerResetHook(Runnable hook) {
+        resetHooks.add(hook);
+    }
+
+    public static void unregisterResetHook(Runnable hook) {
+        resetHooks.remove(hook);
+    }
+
+    // Миграции идут до построения метаданных: hbm2ddl=validate проверяет уже итоговую схему
+    private static void migrateSchema(StandardServiceRegistry registry) throws SQLException {
+        Object enabled = registry.requireService(ConfigurationService.class).getSettings()
+                .getOrDefault(MIGRATIONS_ENABLED, "true");
+        if (!Boolean.parseBoolean(String.valueOf(enabled))) {
+            return;
+        }
+
+        ConnectionProvider connectionProvider = registry.requireService(ConnectionProvider.class);
+        Connection connection = connectionProvider.getConnection();
+        try {
+            new SchemaMigrator(connection).migrate();
+            // Секции текущего и ближайших месяцев должны быть до первой вставки
+            UserPartitionManager.ensureFuturePartitions(connection, UserPartitionManager.DEFAULT_MONTHS_AHEAD);
+        } finally {
+            connectionProvider.closeConnection(connection);
         }
-        return sessionFactory;
     }
 
-    public static void resetSessionFactory() {
-        if (sessionFactory != null) {
-            sessionFactory.close();
-            sessionFactory = null;
+    public static synchronized void resetSessionFactory() {
+        runHooks(resetHooks);
+        if (current != null) {
+            current.factory.close();
+            current = null;
         }
     }
 
-    public static void shutdown() {
-        if (sessionFactory != null) {
-            sessionFactory.close();
+    public static synchronized void shutdown() {
+        runHooks(shutdownHooks);
+        if (current != null) {
+            current.factory.close();
+        }
+    }
+
+    private static void runHooks(List<Runnable> hooks) {
+        for (Runnable hook : hooks) {
+            try {
+                hook.run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * SessionFactory и счётчик открытых на ней сессий. Отрицательный счётчик — фабрика
+     * закрывается и новых сессий не выдаёт.
+     */
+    private static final class Generation {
+        private static final int CLOSED = Integer.MIN_VALUE;
+
+        private final SessionFactory factory;
+        private final AtomicInteger sessions = new AtomicInteger();
+
+        private Generation(SessionFactory factory) {
+            this.factory = factory;
+        }
+
+        boolean acquire() {
+            while (true) {
+                int open = sessions.get();
+                if (open < 0) {
+                    return false;
+                }
+                if (sessions.compareAndSet(open, open + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        // После drain счётчик закрыт: запоздавшая сессия его не трогает, иначе CLOSED - 1
+        // перевалил бы в Integer.MAX_VALUE и закрытая фабрика снова выдавала бы сессии
+        void release() {
+            while (true) {
+                int open = sessions.get();
+                if (open <= 0 || sessions.compareAndSet(open, open - 1)) {
+                    return;
+                }
+            }
+        }
+
+        // Заодно считает выражения для событий JFR
+        SessionEventListener tracker() {
+            return new SessionEventListener() {
+                @Override
+                public void jdbcExecuteStatementEnd() {
+                    OperationEvents.statementExecuted();
+                }
+
+                // Пакетные вставки и обновления идут мимо jdbcExecuteStatementEnd; пакет — один запрос
+                @Override
+                public void jdbcExecuteBatchEnd() {
+                    OperationEvents.statementExecuted();
+                }
+
+                @Override
+                public void end() {
+                    release();
+                }
+            };
+        }
+
+        /**
+         * Ждёт закрытия всех сессий и запрещает новые.
+         *
+         * @return сколько сессий осталось открытыми по истечении {@code timeout}
+         */
+        int drain(Duration timeout) {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            while (!sessions.compareAndSet(0, CLOSED)) {
+                if (System.nanoTime() >= deadline || Thread.currentThread().isInterrupted()) {
+                    return Math.max(0, sessions.getAndSet(CLOSED));
+                }
+                LockSupport.parkNanos(DRAIN_POLL_NANOS);
+            }
+            return 0;
         }
     }
-}
\ No newline at end of file
+}
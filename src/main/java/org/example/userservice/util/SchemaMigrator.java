@@ -0,0 +1,159 @@
+package org.example.userservice.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Версионные миграции схемы из {@code db/migration/V<версия>__<описание>.sql}.
+ * <p>
+ * Применённые версии и контрольные суммы хранятся в user_service.schema_migrations.
+ * Каждая миграция выполняется в своей транзакции. Одновременный старт нескольких
+ * экземпляров сериализуется advisory-блокировкой: второй дождётся первого и увидит,
+ * что применять нечего. Изменение уже применённого файла — ошибка старта.
+ */
+public class SchemaMigrator {
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    // Порядок применения; новые миграции добавляются в конец
+    static final List<String> MIGRATIONS = List.of(
+            "V1__baseline.sql",
+            "V2__email_lower_and_created_at_indexes.sql",
+            "V3__partition_users_by_created_at.sql",
+            "V4__users_id_block_sequence.sql",
+            "V5__move_default_rows_into_new_partitions.sql"
+    );
+
+    private static final String LOCATION = "db/migration/";
+    private static final long ADVISORY_LOCK_KEY = 0x75736572L; // "user"
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+    record Migration(int version, String description, String script, long checksum) {
+    }
+
+    private final Connection connection;
+
+    public SchemaMigrator(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Применяет недостающие миграции. Возвращает число применённых.
+     */
+    public int migrate() throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SELECT pg_advisory_lock(" + ADVISORY_LOCK_KEY + ")");
+            try {
+                return applyPending();
+            } finally {
+                statement.execute("SELECT pg_advisory_unlock(" + ADVISORY_LOCK_KEY + ")");
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private int applyPending() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA IF NOT EXISTS user_service");
+            statement.execute("CREATE TABLE IF NOT EXISTS user_service.schema_migrations ("
+                    + "version INTEGER PRIMARY KEY, "
+                    + "description VARCHAR(255) NOT NULL, "
+                    + "checksum BIGINT NOT NULL, "
+                    + "execution_ms BIGINT NOT NULL, "
+                    + "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        }
+
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT version, checksum FROM user_service.schema_migrations")) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+
+        int count = 0;
+        for (String fileName : MIGRATIONS) {
+            Migration migration = load(fileName);
+            Long checksum = applied.get(migration.version());
+            if (checksum != null) {
+                if (checksum != migration.checksum()) {
+                    throw new IllegalStateException("Migration " + fileName + " was modified after it was applied");
+                }
+                continue;
+            }
+            apply(migration);
+            count++;
+        }
+        if (count > 0) {
+            logger.info("Applied {} schema migration(s)", count);
+        }
+        return count;
+    }
+
+    private void apply(Migration migration) throws SQLException {
+        long start = System.currentTimeMillis();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement();
+             PreparedStatement record = connection.prepareStatement(
+                     "INSERT INTO user_service.schema_migrations (version, description, checksum, execution_ms) "
+                             + "VALUES (?, ?, ?, ?)")) {
+            statement.execute(migration.script());
+
+            record.setInt(1, migration.version());
+            record.setString(2, migration.description());
+            record.setLong(3, migration.checksum());
+            record.setLong(4, System.currentTimeMillis() - start);
+            record.executeUpdate();
+
+            connection.commit();
+            logger.info("Applied migration V{} ({}) in {} ms",
+                    migration.version(), migration.description(), System.currentTimeMillis() - start);
+        } catch (SQLException e) {
+            connection.rollback();
+            throw new SQLException("Migration V" + migration.version() + " failed: " + e.getMessage(), e);
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    static Migration load(String fileName) {
+        Matcher matcher = FILE_NAME.matcher(fileName);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid migration file name: " + fileName);
+        }
+
+        try (InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(LOCATION + fileName)) {
+            if (in == null) {
+                throw new IllegalStateException("Migration not found on classpath: " + fileName);
+            }
+            byte[] bytes = in.readAllBytes();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            return new Migration(
+                    Integer.parseInt(matcher.group(1)),
+                    matcher.group(2).replace('_', ' '),
+                    new String(bytes, StandardCharsets.UTF_8),
+                    crc.getValue()
+            );
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read migration " + fileName, e);
+        }
+    }
+}
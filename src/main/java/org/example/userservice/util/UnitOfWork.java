@@ -0,0 +1,153 @@
+package org.example.userservice.util;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Единица работы: одна сессия и одна транзакция на несколько операций DAO в текущем потоке.
+ * <p>
+ * Сессия открывается лениво — при первом обращении DAO через {@link #withSession(Function)},
+ * поэтому единица работы без обращений к базе ничего не стоит. Вложенные вызовы
+ * {@link #execute(Supplier)} присоединяются к внешней единице работы; коммит или откат
+ * выполняет только самая внешняя. Если задан {@link Deadline}, его остаток ограничивает
+ * запросы транзакции через {@code SET LOCAL statement_timeout}. Действия из
+ * {@link #afterCompletion(Runnable)} выполняются после коммита или отката самой внешней единицы.
+ */
+public final class UnitOfWork {
+    private static final Logger logger = LoggerFactory.getLogger(UnitOfWork.class);
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+    private static final String HINT_QUERY_TIMEOUT = "jakarta.persistence.query.timeout";
+
+    private Session session;
+    private Transaction transaction;
+    private List<Runnable> afterCompletion;
+
+    private UnitOfWork() {
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Выполняет действие после завершения текущей единицы работы, когда её изменения уже видны
+     * другим транзакциям (или отменены). Вне единицы работы выполняет сразу.
+     */
+    public static void afterCompletion(Runnable action) {
+        UnitOfWork unit = CURRENT.get();
+        if (unit == null) {
+            action.run();
+            return;
+        }
+        if (unit.afterCompletion == null) {
+            unit.afterCompletion = new ArrayList<>();
+        }
+        unit.afterCompletion.add(action);
+    }
+
+    public static <T> T execute(Supplier<T> work) {
+        if (isActive()) {
+            return work.get();
+        }
+
+        UnitOfWork unit = new UnitOfWork();
+        CURRENT.set(unit);
+        try {
+            T result = work.get();
+            unit.commit();
+            return result;
+        } catch (RuntimeException | Error e) {
+            unit.rollback(e);
+            throw e;
+        } finally {
+            CURRENT.remove();
+            unit.close();
+            unit.runAfterCompletion();
+        }
+    }
+
+    public static void run(Runnable work) {
+        execute(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Выполняет работу в сессии текущей единицы работы или, если её нет, в собственной.
+     */
+    public static <T> T withSession(Function<Session, T> work) {
+        return execute(() -> {
+            Deadline.check("database call");
+            Session session = CURRENT.get().session();
+            if (Deadline.isActive()) {
+                // Клиентский таймаут JDBC считается в секундах — округляем вверх, чтобы не получить 0 (без ограничения)
+                long seconds = TimeUnit.NANOSECONDS.toSeconds(Deadline.remaining() + 999_999_999L);
+                session.setProperty(HINT_QUERY_TIMEOUT, (int) Math.min(Integer.MAX_VALUE, seconds * 1000));
+            }
+            return work.apply(session);
+        });
+    }
+
+    private Session session() {
+        if (session == null) {
+            session = HibernateUtil.openSession();
+            transaction = session.beginTransaction();
+            if (Deadline.isActive()) {
+                // Соединение могло ждать дольше срока; дальше каждый запрос ограничивает сервер
+                Deadline.check("connection acquire");
+                long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(Deadline.remaining()));
+                session.doWork(connection -> {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("SET LOCAL statement_timeout = " + millis);
+                    }
+                });
+            }
+        }
+        return session;
+    }
+
+    private void commit() {
+        if (transaction != null) {
+            transaction.commit();
+        }
+    }
+
+    private void rollback(Throwable cause) {
+        if (transaction != null && transaction.isActive()) {
+            try {
+                transaction.rollback();
+            } catch (RuntimeException rollbackError) {
+                cause.addSuppressed(rollbackError);
+            }
+        }
+    }
+
+    private void runAfterCompletion() {
+        if (afterCompletion == null) {
+            return;
+        }
+        for (Runnable action : afterCompletion) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                logger.error("After-completion action failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void close() {
+        if (session != null) {
+            session.close();
+        }
+    }
+}
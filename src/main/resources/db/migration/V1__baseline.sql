@@ -0,0 +1,30 @@
+-- Исходная схема (совпадает с init-scripts/01-init-tables.sql)
+CREATE SCHEMA IF NOT EXISTS user_service;
+
+CREATE TABLE IF NOT EXISTS user_service.users (
+    id BIGSERIAL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    email VARCHAR(255) UNIQUE NOT NULL,
+    age INTEGER,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE OR REPLACE FUNCTION user_service.notify_user_change() RETURNS TRIGGER AS $$
+DECLARE
+    changed_id BIGINT;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        changed_id := OLD.id;
+    ELSE
+        changed_id := NEW.id;
+    END IF;
+    PERFORM pg_notify('user_changes',
+            TG_OP || ':' || changed_id || ':' || (extract(EPOCH FROM clock_timestamp()) * 1000)::BIGINT);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS users_notify_change ON user_service.users;
+CREATE TRIGGER users_notify_change
+    AFTER INSERT OR UPDATE OR DELETE ON user_service.users
+    FOR EACH ROW EXECUTE FUNCTION user_service.notify_user_change();
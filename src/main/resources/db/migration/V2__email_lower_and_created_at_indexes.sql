@@ -0,0 +1,12 @@
+-- Email хранится и ищется в нижнем регистре: уникальность без учёта регистра
+-- и индекс, которым может пользоваться findByEmail (lower(email) = lower(?)).
+-- Если в таблице уже есть адреса, различающиеся только регистром, миграция упадёт
+-- на создании индекса — такие дубликаты нужно разобрать вручную.
+UPDATE user_service.users SET email = lower(email) WHERE email <> lower(email);
+
+CREATE UNIQUE INDEX IF NOT EXISTS users_email_lower_uidx ON user_service.users (lower(email));
+
+-- Прежнее ограничение UNIQUE(email) теперь избыточно и только удорожает запись
+ALTER TABLE user_service.users DROP CONSTRAINT IF EXISTS users_email_key;
+
+CREATE INDEX IF NOT EXISTS users_created_at_idx ON user_service.users (created_at);
@@ -0,0 +1,85 @@
+-- Помесячное секционирование users по created_at.
+-- Первичный ключ секционированной таблицы обязан включать ключ секционирования,
+-- поэтому он становится (id, created_at), а created_at — NOT NULL.
+-- Глобальную уникальность email, которую не даёт индекс по секциям,
+-- обеспечивает реестр user_emails, поддерживаемый триггером.
+
+CREATE OR REPLACE FUNCTION user_service.ensure_users_partitions(from_month DATE, months_ahead INTEGER)
+    RETURNS INTEGER AS $$
+DECLARE
+    month_start DATE := date_trunc('month', from_month)::DATE;
+    last_month DATE := (date_trunc('month', CURRENT_DATE) + make_interval(months => months_ahead))::DATE;
+    partition_name TEXT;
+    created INTEGER := 0;
+BEGIN
+    WHILE month_start <= last_month LOOP
+        partition_name := 'users_p' || to_char(month_start, 'YYYY_MM');
+        IF to_regclass('user_service.' || partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE user_service.%I PARTITION OF user_service.users FOR VALUES FROM (%L) TO (%L)',
+                           partition_name, month_start, (month_start + INTERVAL '1 month')::DATE);
+            created := created + 1;
+        END IF;
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+ALTER TABLE user_service.users RENAME TO users_unpartitioned;
+-- Последовательность id переживает удаление старой таблицы
+ALTER SEQUENCE user_service.users_id_seq OWNED BY NONE;
+
+CREATE TABLE user_service.users (
+    id BIGINT NOT NULL DEFAULT nextval('user_service.users_id_seq'),
+    name VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    age INTEGER,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE user_service.users_id_seq OWNED BY user_service.users.id;
+
+-- Строки вне созданных месяцев не теряются, а попадают сюда
+CREATE TABLE user_service.users_default PARTITION OF user_service.users DEFAULT;
+
+SELECT user_service.ensure_users_partitions(
+        COALESCE((SELECT min(created_at) FROM user_service.users_unpartitioned), CURRENT_TIMESTAMP)::DATE, 3);
+
+INSERT INTO user_service.users (id, name, email, age, created_at)
+SELECT id, name, email, age, COALESCE(created_at, CURRENT_TIMESTAMP)
+FROM user_service.users_unpartitioned;
+
+DROP TABLE user_service.users_unpartitioned;
+
+CREATE INDEX users_created_at_idx ON user_service.users (created_at);
+CREATE INDEX users_email_lower_idx ON user_service.users (lower(email));
+
+CREATE TABLE user_service.user_emails (
+    email_lower VARCHAR(255) PRIMARY KEY,
+    user_id BIGINT NOT NULL
+);
+
+INSERT INTO user_service.user_emails (email_lower, user_id)
+SELECT lower(email), id FROM user_service.users;
+
+CREATE OR REPLACE FUNCTION user_service.sync_user_email() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        DELETE FROM user_service.user_emails WHERE email_lower = lower(OLD.email) AND user_id = OLD.id;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        -- Нарушение первичного ключа здесь и есть нарушение уникальности email
+        INSERT INTO user_service.user_emails (email_lower, user_id) VALUES (lower(NEW.email), NEW.id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER users_sync_email
+    AFTER INSERT OR DELETE OR UPDATE OF email ON user_service.users
+    FOR EACH ROW EXECUTE FUNCTION user_service.sync_user_email();
+
+CREATE TRIGGER users_notify_change
+    AFTER INSERT OR UPDATE OR DELETE ON user_service.users
+    FOR EACH ROW EXECUTE FUNCTION user_service.notify_user_change();
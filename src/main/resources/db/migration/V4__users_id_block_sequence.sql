@@ -0,0 +1,10 @@
+-- Id назначаются на стороне приложения блоками (BlockSequenceGenerator): один nextval
+-- выдаёт экземпляру сервиса диапазон [значение, значение + шаг), поэтому шаг
+-- последовательности и есть размер блока. Последовательность атомарна, значит блоки
+-- разных экземпляров не пересекаются. DEFAULT nextval у столбца остаётся для вставок
+-- из SQL: такая вставка просто занимает первое значение своего блока.
+SELECT setval('user_service.users_id_seq',
+              greatest((SELECT coalesce(max(id), 1) FROM user_service.users),
+                       (SELECT last_value FROM user_service.users_id_seq)));
+
+ALTER SEQUENCE user_service.users_id_seq INCREMENT BY 50;
@@ -0,0 +1,46 @@
+-- Если сервис проработал дольше, чем секции созданы вперёд, строки новых месяцев
+-- уже лежат в users_default, и CREATE TABLE ... PARTITION OF для такого месяца
+-- падает на проверке секции по умолчанию. Теперь для такого месяца секция по умолчанию
+-- отсоединяется, создаётся секция месяца, его строки переносятся в неё и секция
+-- по умолчанию присоединяется обратно — всё в транзакции вызывающего.
+CREATE OR REPLACE FUNCTION user_service.ensure_users_partitions(from_month DATE, months_ahead INTEGER)
+    RETURNS INTEGER AS $$
+DECLARE
+    month_start DATE := date_trunc('month', from_month)::DATE;
+    month_end DATE;
+    last_month DATE := (date_trunc('month', CURRENT_DATE) + make_interval(months => months_ahead))::DATE;
+    partition_name TEXT;
+    created INTEGER := 0;
+BEGIN
+    WHILE month_start <= last_month LOOP
+        partition_name := 'users_p' || to_char(month_start, 'YYYY_MM');
+        month_end := (month_start + INTERVAL '1 month')::DATE;
+        IF to_regclass('user_service.' || partition_name) IS NULL THEN
+            IF EXISTS (SELECT 1 FROM user_service.users_default
+                       WHERE created_at >= month_start AND created_at < month_end) THEN
+                -- Отсоединённая секция теряет клонированные триггеры, поэтому реестр email
+                -- освобождается явно, а при вставке через users триггер заполняет его снова
+                ALTER TABLE user_service.users DETACH PARTITION user_service.users_default;
+                EXECUTE format('CREATE TABLE user_service.%I PARTITION OF user_service.users FOR VALUES FROM (%L) TO (%L)',
+                               partition_name, month_start, month_end);
+                DELETE FROM user_service.user_emails e
+                    USING user_service.users_default d
+                    WHERE d.created_at >= month_start AND d.created_at < month_end
+                      AND e.user_id = d.id AND e.email_lower = lower(d.email);
+                INSERT INTO user_service.users (id, name, email, age, created_at)
+                    SELECT id, name, email, age, created_at FROM user_service.users_default
+                    WHERE created_at >= month_start AND created_at < month_end;
+                DELETE FROM user_service.users_default
+                    WHERE created_at >= month_start AND created_at < month_end;
+                ALTER TABLE user_service.users ATTACH PARTITION user_service.users_default DEFAULT;
+            ELSE
+                EXECUTE format('CREATE TABLE user_service.%I PARTITION OF user_service.users FOR VALUES FROM (%L) TO (%L)',
+                               partition_name, month_start, month_end);
+            END IF;
+            created := created + 1;
+        END IF;
+        month_start := month_end;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
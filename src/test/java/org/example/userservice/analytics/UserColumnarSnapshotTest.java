@@ -0,0 +1,104 @@
+package org.example.userservice.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.SortedMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserColumnarSnapshotTest {
+
+    private static UserColumnarSnapshot sample() {
+        return UserColumnarSnapshot.builder()
+                .add(1, 25, LocalDateTime.of(2024, 1, 15, 10, 0), "Anna", "anna@example.com")
+                .add(2, 31, LocalDateTime.of(2024, 1, 20, 12, 30), "Ivan", "ivan@example.com")
+                .add(3, null, LocalDateTime.of(2024, 3, 1, 0, 0), "Anna", "anna2@example.com")
+                .add(5, 64, null, "Пётр", "petr@пример.рф")
+                .build();
+    }
+
+    @Test
+    void shouldStoreColumns() {
+        UserColumnarSnapshot snapshot = sample();
+
+        assertEquals(4, snapshot.size());
+        assertEquals(5L, snapshot.watermark());
+        assertEquals(3L, snapshot.id(2));
+        assertEquals(UserColumnarSnapshot.NULL_AGE, snapshot.age(2));
+        assertEquals(UserColumnarSnapshot.NULL_CREATED_AT, snapshot.createdAtEpochSecond(3));
+        assertEquals("Anna", snapshot.name(2));
+        assertEquals("petr@пример.рф", snapshot.email(3));
+    }
+
+    @Test
+    void shouldFilterAndAggregate() {
+        UserColumnarSnapshot snapshot = sample();
+
+        assertEquals(2, snapshot.count(snapshot.nameEquals("Anna")));
+        assertEquals(0, snapshot.count(snapshot.nameEquals("Nobody")));
+        assertEquals(2, snapshot.count(snapshot.ageBetween(20, 40)));
+        assertEquals(2, snapshot.count(snapshot.createdBetween(
+                LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0))));
+        assertEquals((25 + 31 + 64) / 3.0, snapshot.averageAge(snapshot.all()), 1e-9);
+        assertTrue(Double.isNaN(snapshot.averageAge(snapshot.nameEquals("Nobody"))));
+
+        long[] histogram = snapshot.ageHistogram(10, snapshot.all());
+        assertEquals(1, histogram[2]);
+        assertEquals(1, histogram[3]);
+        assertEquals(1, histogram[6]);
+
+        SortedMap<YearMonth, Long> cohorts = snapshot.countByCreatedMonth(snapshot.all());
+        assertEquals(2L, cohorts.get(YearMonth.of(2024, 1)));
+        assertEquals(1L, cohorts.get(YearMonth.of(2024, 3)));
+        assertEquals(2, cohorts.size());
+    }
+
+    @Test
+    void shouldScanLargeSnapshotInParallelChunks() {
+        UserColumnarSnapshot.Builder builder = UserColumnarSnapshot.builder();
+        LocalDateTime base = LocalDateTime.of(2020, 1, 1, 0, 0);
+        int rows = 300_000;
+        for (int i = 1; i <= rows; i++) {
+            builder.add(i, i % 100, base.plusHours(i), "User" + (i % 50), "user" + i + "@example.com");
+        }
+        UserColumnarSnapshot snapshot = builder.build();
+
+        assertEquals(rows, snapshot.count(snapshot.all()));
+        assertEquals(rows / 100 * 10, snapshot.count(snapshot.ageBetween(0, 9)));
+        assertEquals(rows / 50, snapshot.count(snapshot.nameEquals("User7")));
+        assertEquals(rows, snapshot.countByCreatedMonth(snapshot.all()).values().stream().mapToLong(Long::longValue).sum());
+        assertEquals("user123456@example.com", snapshot.email(123455));
+    }
+
+    @Test
+    void shouldMergeLateCommittedRowsBelowWatermark() {
+        UserColumnarSnapshot delta = UserColumnarSnapshot.builder()
+                .add(3, null, LocalDateTime.of(2024, 3, 1, 0, 0), "Anna", "anna2@example.com")
+                .add(4, 40, LocalDateTime.of(2024, 3, 2, 0, 0), "Олег", "oleg@example.com")
+                .add(7, 22, LocalDateTime.of(2024, 3, 3, 0, 0), "Ivan", "ivan2@example.com")
+                .build();
+
+        UserColumnarSnapshot merged = sample().merge(delta);
+
+        assertEquals(6, merged.size());
+        assertEquals(7L, merged.watermark());
+        assertEquals(4L, merged.id(3));
+        assertEquals("Олег", merged.name(3));
+        assertEquals("oleg@example.com", merged.email(3));
+        assertEquals("petr@пример.рф", merged.email(4));
+        assertEquals(UserColumnarSnapshot.NULL_AGE, merged.age(2));
+        assertEquals(UserColumnarSnapshot.NULL_CREATED_AT, merged.createdAtEpochSecond(4));
+        assertSame(merged, merged.merge(delta));
+    }
+
+    @Test
+    void shouldRejectRowsOutOfIdOrder() {
+        UserColumnarSnapshot.Builder builder = UserColumnarSnapshot.builder()
+                .add(2, 30, null, "Anna", "anna@example.com");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.add(1, 30, null, "Ivan", "ivan@example.com"));
+    }
+}
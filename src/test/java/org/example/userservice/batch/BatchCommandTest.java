@@ -0,0 +1,47 @@
+package org.example.userservice.batch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchCommandTest {
+
+    @Test
+    void shouldParseTextCommands() {
+        BatchCommand create = BatchCommand.parse(1, "create \"John Doe\" john@example.com 25");
+        BatchCommand update = BatchCommand.parse(2, "update 5 name=\"New Name\" age=30");
+
+        assertEquals(new BatchCommand(1, BatchCommand.Operation.CREATE, null, "John Doe", "john@example.com", 25),
+                create);
+        assertEquals(new BatchCommand(2, BatchCommand.Operation.UPDATE, 5L, "New Name", null, 30), update);
+        assertEquals(BatchCommand.Operation.DELETE, BatchCommand.parse(3, "DELETE 7").operation());
+    }
+
+    @Test
+    void shouldParseNdjsonCommands() {
+        BatchCommand get = BatchCommand.parse(1, "{\"op\":\"get\",\"id\":42}");
+        BatchCommand update = BatchCommand.parse(2, "{\"op\":\"update\",\"id\":\"5\",\"email\":\"a@b.com\"}");
+
+        assertEquals(42L, get.id());
+        assertEquals("a@b.com", update.email());
+        assertNull(update.age());
+    }
+
+    @Test
+    void shouldSkipBlankLinesAndComments() {
+        assertNull(BatchCommand.parse(1, "   "));
+        assertNull(BatchCommand.parse(2, "# comment"));
+    }
+
+    @Test
+    void shouldRejectMalformedCommands() {
+        assertThrows(IllegalArgumentException.class, () -> BatchCommand.parse(1, "rename 5"));
+        assertThrows(IllegalArgumentException.class, () -> BatchCommand.parse(1, "get abc"));
+        assertThrows(IllegalArgumentException.class, () -> BatchCommand.parse(1, "create \"John john@example.com 25"));
+        assertThrows(IllegalArgumentException.class, () -> BatchCommand.parse(1, "delete 5 name=x"));
+        assertThrows(IllegalArgumentException.class, () -> BatchCommand.parse(1, "{\"op\":\"get\"}"));
+        assertThrows(IllegalArgumentException.class, () -> BatchCommand.parse(1, "{not json"));
+        assertThrows(IllegalArgumentException.class, () -> BatchCommand.parse(1, "create John john@example.com 4294967321"));
+        assertThrows(IllegalArgumentException.class, () -> BatchCommand.parse(1, "update 5 age=-2147483649"));
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.userservice.batch;
+
+import org.example.userservice.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BatchRunnerTest {
+
+    @Test
+    void shouldExecuteCommandsAndSummarize() throws Exception {
+        UserService userService = mock(UserService.class);
+        when(userService.createUser("John Doe", "john@example.com", 25)).thenReturn(1L);
+        when(userService.updateUser(1L, null, null, 26)).thenReturn(true);
+        when(userService.deleteUser(1L)).thenReturn(true);
+        when(userService.getUserById(2L)).thenReturn(Optional.empty());
+        when(userService.deleteUser(3L)).thenThrow(new RuntimeException("Failed to delete user"));
+
+        String input = String.join("\n",
+                "# setup",
+                "create \"John Doe\" john@example.com 25",
+                "update 1 age=26",
+                "{\"op\":\"delete\",\"id\":1}",
+                "get 2",
+                "delete 3",
+                "bogus");
+        StringWriter out = new StringWriter();
+
+        BatchRunner.Summary summary = new BatchRunner(userService, 4)
+                .run(new BufferedReader(new StringReader(input)), out);
+
+        assertEquals(6, summary.commands());
+        assertEquals(3, summary.succeeded());
+        assertEquals(1, summary.notFound());
+        assertEquals(2, summary.failed());
+        String output = out.toString();
+        assertTrue(output.contains("2\tOK\tcreate\t1\n"));
+        assertTrue(output.contains("5\tNOT_FOUND\tget\t2\n"));
+        assertTrue(output.contains("6\tERROR\tdelete\tFailed to delete user\n"));
+        assertTrue(output.contains("7\tERROR\tparse\t"));
+        assertTrue(output.contains("# commands=6 succeeded=3 notFound=1 failed=2"));
+
+        // Команды об одном пользователе выполняются в порядке файла
+        InOrder inOrder = inOrder(userService);
+        inOrder.verify(userService).updateUser(1L, null, null, 26);
+        inOrder.verify(userService).deleteUser(1L);
+    }
+}
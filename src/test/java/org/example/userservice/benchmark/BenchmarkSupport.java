@@ -0,0 +1,91 @@
+package org.example.userservice.benchmark;
+
+import org.example.userservice.dao.UserDao;
+import org.example.userservice.model.User;
+import org.example.userservice.util.UnitOfWork;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Простые замеры для ручных бенчмарков против настоящей базы
+ * (docker-compose up -d или hibernate.connection.* в системных свойствах).
+ * Бенчмарки — обычные main-классы, surefire их не запускает.
+ */
+final class BenchmarkSupport {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    // Держит результат между замерами кучи
+    private static volatile Object sink;
+
+    record Result(String name, double meanMs, double p50Ms, double p99Ms,
+                  long allocatedBytesPerOp, long cpuNanosPerOp) {
+
+        @Override
+        public String toString() {
+            return String.format("%-32s mean=%8.3f ms  p50=%8.3f ms  p99=%8.3f ms  alloc=%,12d B/op  cpu=%,10d us/op",
+                    name, meanMs, p50Ms, p99Ms, allocatedBytesPerOp, cpuNanosPerOp / 1_000);
+        }
+    }
+
+    private BenchmarkSupport() {
+    }
+
+    static Result measure(String name, int warmup, int iterations, Runnable operation) {
+        for (int i = 0; i < warmup; i++) {
+            operation.run();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long[] samples = new long[iterations];
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long cpuBefore = THREADS.getCurrentThreadCpuTime();
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        long cpu = THREADS.getCurrentThreadCpuTime() - cpuBefore;
+
+        Arrays.sort(samples);
+        double mean = Arrays.stream(samples).average().orElse(0) / 1e6;
+        Result result = new Result(name, mean,
+                samples[iterations / 2] / 1e6,
+                samples[Math.min(iterations - 1, (int) Math.ceil(iterations * 0.99) - 1)] / 1e6,
+                allocated / iterations, cpu / iterations);
+        System.out.println(result);
+        return result;
+    }
+
+    /**
+     * Примерный объём кучи, удерживаемый результатом {@code supplier} (разница used-heap после GC).
+     */
+    static long retainedBytes(java.util.function.Supplier<?> supplier) {
+        long before = usedHeapAfterGc();
+        sink = supplier.get();
+        long after = usedHeapAfterGc();
+        sink = null;
+        return after - before;
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    static List<Long> seedUsers(UserDao userDao, String prefix, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        UnitOfWork.run(() -> {
+            for (int i = 0; i < count; i++) {
+                ids.add(userDao.save(new User("Bench User", prefix + i + "@bench.test", 20 + i % 60)));
+            }
+        });
+        return ids;
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.userservice.benchmark;
+
+import org.example.userservice.dao.UserDaoImpl;
+import org.example.userservice.model.User;
+import org.example.userservice.util.HibernateUtil;
+import org.example.userservice.util.UnitOfWork;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+
+import java.util.List;
+
+/**
+ * Стоимость flush и память на управляемую сущность на пути массового обновления:
+ * сессия держит N пользователей, меняется каждый десятый.
+ * <p>
+ * Для сравнения запустить дважды: после обычной сборки (с bytecode enhancement) и после
+ * {@code mvn -Dhibernate.enhance.phase=none test-compile}. Аргументы: [число сущностей] [итерации].
+ */
+public class FlushBenchmark {
+
+    public static void main(String[] args) {
+        int entities = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        System.out.printf("User enhanced: %s%n", SelfDirtinessTracker.class.isAssignableFrom(User.class));
+        UserDaoImpl userDao = new UserDaoImpl();
+        try {
+            List<Long> ids = BenchmarkSupport.seedUsers(userDao, "flush-" + System.nanoTime() + "-", entities);
+
+            long[] flushNanos = new long[1];
+            BenchmarkSupport.measure("load + update 10% + flush", 2, iterations,
+                    () -> {
+                        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+                            session.beginTransaction();
+                            List<User> users = session.createQuery("FROM User WHERE id IN :ids", User.class)
+                                    .setParameter("ids", ids)
+                                    .list();
+                            for (int i = 0; i < users.size(); i += 10) {
+                                users.get(i).setAge(users.get(i).getAge() % 100 + 1);
+                            }
+                            long start = System.nanoTime();
+                            session.flush();
+                            flushNanos[0] += System.nanoTime() - start;
+                            session.getTransaction().commit();
+                        }
+                    });
+            System.out.printf("Flush only: %.3f ms per flush of %d managed entities%n",
+                    flushNanos[0] / 1e6 / (iterations + 2), entities);
+
+            Session[] measured = new Session[1];
+            long retained = BenchmarkSupport.retainedBytes(() -> {
+                measured[0] = HibernateUtil.getSessionFactory().openSession();
+                measured[0].createQuery("FROM User WHERE id IN :ids", User.class).setParameter("ids", ids).list();
+                return measured[0];
+            });
+            measured[0].close();
+            System.out.printf("Retained per managed entity: %,d B%n", retained / entities);
+
+            UnitOfWork.run(() -> ids.forEach(userDao::delete));
+        } finally {
+            HibernateUtil.shutdown();
+        }
+    }
+}
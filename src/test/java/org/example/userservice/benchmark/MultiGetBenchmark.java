@@ -0,0 +1,39 @@
+package org.example.userservice.benchmark;
+
+import org.example.userservice.dao.UserDaoImpl;
+import org.example.userservice.service.UserService;
+import org.example.userservice.util.HibernateUtil;
+import org.example.userservice.util.UnitOfWork;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Сравнивает загрузку N пользователей циклом getUserById и одним getUsersByIds.
+ * Аргументы: [количество id] [число итераций].
+ */
+public class MultiGetBenchmark {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        UserDaoImpl userDao = new UserDaoImpl();
+        UserService userService = new UserService(userDao);
+        try {
+            List<Long> ids = BenchmarkSupport.seedUsers(userDao, "multiget-" + System.nanoTime() + "-", count);
+            Collections.shuffle(ids);
+
+            System.out.printf("Loading %d users, %d iterations%n", count, iterations);
+            BenchmarkSupport.Result loop = BenchmarkSupport.measure("getUserById loop", 3, iterations,
+                    () -> ids.forEach(userService::getUserById));
+            BenchmarkSupport.Result multi = BenchmarkSupport.measure("getUsersByIds", 3, iterations,
+                    () -> userService.getUsersByIds(ids));
+            System.out.printf("Speedup (mean): %.1fx%n", loop.meanMs() / multi.meanMs());
+
+            UnitOfWork.run(() -> ids.forEach(userDao::delete));
+        } finally {
+            HibernateUtil.shutdown();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.userservice.benchmark;
+
+import org.example.userservice.dao.UserDaoImpl;
+import org.example.userservice.util.HibernateUtil;
+import org.example.userservice.util.UnitOfWork;
+
+import java.util.List;
+
+/**
+ * Сравнивает загрузку сущностей (findAll) и DTO-проекции (findSummaries)
+ * по CPU, аллокациям и удерживаемой куче на 10 000 строк.
+ * Аргументы: [количество строк] [число итераций].
+ */
+public class ProjectionBenchmark {
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        UserDaoImpl userDao = new UserDaoImpl();
+        try {
+            List<Long> ids = BenchmarkSupport.seedUsers(userDao, "projection-" + System.nanoTime() + "-", rows);
+            int total = userDao.findSummaries().size();
+            double per10k = 10_000.0 / total;
+            System.out.printf("Table rows: %d, figures below are per 10k rows where noted%n", total);
+
+            BenchmarkSupport.Result entities = BenchmarkSupport.measure("findAll (entities)", 3, iterations,
+                    userDao::findAll);
+            BenchmarkSupport.Result summaries = BenchmarkSupport.measure("findSummaries (DTO)", 3, iterations,
+                    userDao::findSummaries);
+
+            System.out.printf("Allocated per 10k rows: entities=%,d B, dto=%,d B%n",
+                    (long) (entities.allocatedBytesPerOp() * per10k), (long) (summaries.allocatedBytesPerOp() * per10k));
+            System.out.printf("CPU per 10k rows: entities=%,d us, dto=%,d us%n",
+                    (long) (entities.cpuNanosPerOp() * per10k / 1_000), (long) (summaries.cpuNanosPerOp() * per10k / 1_000));
+            System.out.printf("Retained heap per 10k rows: entities=%,d B, dto=%,d B%n",
+                    (long) (BenchmarkSupport.retainedBytes(userDao::findAll) * per10k),
+                    (long) (BenchmarkSupport.retainedBytes(userDao::findSummaries) * per10k));
+
+            UnitOfWork.run(() -> ids.forEach(userDao::delete));
+        } finally {
+            HibernateUtil.shutdown();
+        }
+    }
+}
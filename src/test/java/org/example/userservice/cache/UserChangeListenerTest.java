@@ -0,0 +1,167 @@
+package org.example.userservice.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.postgresql.core.Notification;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class UserChangeListenerTest {
+
+    private UserChangeListener listener;
+
+    @AfterEach
+    void tearDown() {
+        if (listener != null) {
+            listener.close();
+        }
+    }
+
+    private static PGNotification notification(String payload) {
+        return new Notification(UserChangeListener.CHANNEL, 1, payload);
+    }
+
+    private static Connection connection(PGConnection pgConnection) throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(connection.createStatement()).thenReturn(mock(Statement.class));
+        return connection;
+    }
+
+    private static PGNotification[] idle(int timeout) throws InterruptedException {
+        Thread.sleep(Math.min(timeout, 20));
+        return new PGNotification[0];
+    }
+
+    @Test
+    void shouldParsePayload() {
+        UserChangeEvent event = UserChangeEvent.parse("DELETE:42:1700000000000");
+
+        assertEquals(42L, event.userId());
+        assertEquals(UserChangeEvent.Operation.DELETE, event.operation());
+        assertEquals(1700000000000L, event.sentAtMillis());
+        assertThrows(IllegalArgumentException.class, () -> UserChangeEvent.parse("garbage"));
+    }
+
+    @Test
+    void shouldCoalesceBurstByUserId() throws Exception {
+        long now = System.currentTimeMillis();
+        PGConnection pgConnection = mock(PGConnection.class);
+        when(pgConnection.getNotifications(anyInt()))
+                .thenReturn(new PGNotification[]{
+                        notification("UPDATE:1:" + now),
+                        notification("UPDATE:2:" + now),
+                        notification("DELETE:1:" + now)
+                })
+                .thenAnswer(invocation -> idle(invocation.getArgument(0)));
+        Connection connection = connection(pgConnection);
+
+        List<UserChangeEvent> received = new ArrayList<>();
+        CountDownLatch dispatched = new CountDownLatch(1);
+        listener = new UserChangeListener(() -> connection, Duration.ofMillis(10));
+        listener.subscribe(new UserChangeSubscriber() {
+            @Override
+            public void onUserChanges(Collection<UserChangeEvent> changes) {
+                received.addAll(changes);
+                dispatched.countDown();
+            }
+
+            @Override
+            public void onResync() {
+            }
+        });
+        listener.start();
+
+        assertTrue(dispatched.await(5, TimeUnit.SECONDS));
+        assertEquals(2, received.size());
+        assertEquals(1L, received.get(0).userId());
+        assertEquals(UserChangeEvent.Operation.DELETE, received.get(0).operation());
+        assertEquals(2L, received.get(1).userId());
+
+        UserChangeListener.Stats stats = listener.stats();
+        assertEquals(3, stats.received());
+        assertEquals(2, stats.dispatched());
+        assertEquals(1, stats.batches());
+    }
+
+    @Test
+    void shouldResyncSubscribersAfterReconnect() throws Exception {
+        PGConnection broken = mock(PGConnection.class);
+        when(broken.getNotifications(anyInt())).thenThrow(new SQLException("Connection reset"));
+        PGConnection healthy = mock(PGConnection.class);
+        when(healthy.getNotifications(anyInt())).thenAnswer(invocation -> idle(invocation.getArgument(0)));
+        Connection first = connection(broken);
+        Connection second = connection(healthy);
+
+        AtomicInteger opened = new AtomicInteger();
+        CountDownLatch resynced = new CountDownLatch(2);
+        listener = new UserChangeListener(
+                () -> opened.getAndIncrement() == 0 ? first : second, Duration.ofMillis(10));
+        listener.subscribe(new UserChangeSubscriber() {
+            @Override
+            public void onUserChanges(Collection<UserChangeEvent> changes) {
+            }
+
+            @Override
+            public void onResync() {
+                resynced.countDown();
+            }
+        });
+        listener.start();
+
+        // Сброс кэшей при обрыве и ещё раз после переподключения
+        assertTrue(resynced.await(5, TimeUnit.SECONDS));
+        assertEquals(1, listener.stats().reconnects());
+        verify(first).close();
+    }
+
+    @Test
+    void shouldResyncOnBulkChangeNotification() throws Exception {
+        long now = System.currentTimeMillis();
+        PGConnection pgConnection = mock(PGConnection.class);
+        when(pgConnection.getNotifications(anyInt()))
+                .thenReturn(new PGNotification[]{
+                        notification("UPDATE:1:" + now),
+                        notification(UserChangeEvent.RESYNC)
+                })
+                .thenAnswer(invocation -> idle(invocation.getArgument(0)));
+        Connection connection = connection(pgConnection);
+
+        AtomicInteger batches = new AtomicInteger();
+        CountDownLatch resynced = new CountDownLatch(1);
+        listener = new UserChangeListener(() -> connection, Duration.ofMillis(10));
+        listener.subscribe(new UserChangeSubscriber() {
+            @Override
+            public void onUserChanges(Collection<UserChangeEvent> changes) {
+                batches.incrementAndGet();
+            }
+
+            @Override
+            public void onResync() {
+                resynced.countDown();
+            }
+        });
+        listener.start();
+
+        assertTrue(resynced.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        // Построчные события до сигнала поглощены пересинхронизацией
+        assertEquals(0, batches.get());
+        assertEquals(0, listener.stats().reconnects());
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.userservice.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WTinyLfuCacheTest {
+
+    @Test
+    void shouldKeepFrequentKeysDuringScan() {
+        WTinyLfuCache<Integer, String> cache = new WTinyLfuCache<>(100);
+        for (int round = 0; round < 5; round++) {
+            for (int key = 0; key < 50; key++) {
+                if (cache.get(key) == null) {
+                    cache.put(key, "hot-" + key);
+                }
+            }
+        }
+
+        // Однократный проход по большому числу ключей не должен вымыть горячие
+        for (int key = 1_000; key < 11_000; key++) {
+            cache.put(key, "cold-" + key);
+        }
+
+        int retained = 0;
+        for (int key = 0; key < 50; key++) {
+            if (cache.peek(key) != null) {
+                retained++;
+            }
+        }
+        assertTrue(retained >= 45, "retained " + retained);
+        assertTrue(cache.size() <= 100);
+        assertTrue(cache.evictions() > 0);
+    }
+
+    @Test
+    void shouldUpdateRemoveAndClear() {
+        WTinyLfuCache<String, Integer> cache = new WTinyLfuCache<>(10);
+
+        cache.put("a", 1);
+        cache.put("a", 2);
+        assertEquals(2, cache.get("a"));
+        assertEquals(1, cache.size());
+
+        assertEquals(2, cache.remove("a"));
+        assertNull(cache.get("a"));
+
+        cache.put("b", 3);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertThrows(IllegalArgumentException.class, () -> new WTinyLfuCache<>(1));
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.userservice.dao;
+
+import org.example.userservice.cache.UserChangeEvent;
+import org.example.userservice.model.User;
+import org.example.userservice.util.UnitOfWork;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingUserDaoTest {
+
+    @Mock
+    private UserDao delegate;
+
+    private CachingUserDao cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new CachingUserDao(delegate, 100, Duration.ofMinutes(5), Duration.ofMinutes(4),
+                Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.close();
+    }
+
+    private static User user(long id, String email) {
+        User user = new User("John Doe", email, 25);
+        user.setId(id);
+        return user;
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsFromCacheByIdAndEmail() {
+        when(delegate.findById(1L)).thenReturn(Optional.of(user(1L, "john@example.com")));
+
+        assertTrue(cache.findById(1L).isPresent());
+        cache.findById(1L).get().setName("Changed");
+        assertEquals("John Doe", cache.findById(1L).get().getName());
+        assertEquals(1L, cache.findByEmail("JOHN@example.com").get().getId());
+
+        verify(delegate, times(1)).findById(1L);
+        verify(delegate, never()).findByEmail(anyString());
+        CachingUserDao.Stats stats = cache.stats();
+        assertEquals(3, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.loads());
+    }
+
+    @Test
+    void shouldCacheMissesUntilSave() {
+        when(delegate.findByEmail("new@example.com")).thenReturn(Optional.empty());
+
+        assertTrue(cache.findByEmail("new@example.com").isEmpty());
+        assertTrue(cache.findByEmail("new@example.com").isEmpty());
+        verify(delegate, times(1)).findByEmail("new@example.com");
+        assertEquals(1, cache.stats().negativeHits());
+
+        User created = new User("New", "new@example.com", 30);
+        when(delegate.save(created)).thenReturn(5L);
+        cache.save(created);
+        cache.findByEmail("new@example.com");
+        verify(delegate, times(2)).findByEmail("new@example.com");
+    }
+
+    @Test
+    void shouldNotReturnUserByOldEmailAfterUpdate() {
+        when(delegate.findById(1L)).thenReturn(Optional.of(user(1L, "old@example.com")));
+        cache.findById(1L);
+
+        User renamed = user(1L, "new@example.com");
+        cache.update(renamed);
+        when(delegate.findByEmail("old@example.com")).thenReturn(Optional.empty());
+
+        assertTrue(cache.findByEmail("old@example.com").isEmpty());
+        verify(delegate).findByEmail("old@example.com");
+    }
+
+    @Test
+    void shouldInvalidateAgainAfterUnitOfWorkCompletes() {
+        User renamed = user(1L, "john@example.com");
+        renamed.setName("Renamed");
+        when(delegate.findById(1L))
+                .thenReturn(Optional.of(user(1L, "john@example.com")))
+                .thenReturn(Optional.of(renamed));
+
+        UnitOfWork.run(() -> {
+            cache.update(renamed);
+            // Читатель вне единицы работы видит ещё не закоммиченное изменение как старую строку
+            CompletableFuture.runAsync(() -> assertEquals("John Doe", cache.findById(1L).orElseThrow().getName()))
+                    .join();
+        });
+
+        assertEquals("Renamed", cache.findById(1L).orElseThrow().getName());
+        verify(delegate, times(2)).findById(1L);
+    }
+
+    @Test
+    void shouldInvalidateOnChangeFeedAndResync() {
+        when(delegate.findById(1L)).thenReturn(Optional.of(user(1L, "john@example.com")));
+        when(delegate.findById(2L)).thenReturn(Optional.of(user(2L, "jane@example.com")));
+        cache.findById(1L);
+        cache.findById(2L);
+
+        cache.onUserChanges(List.of(new UserChangeEvent(1L, UserChangeEvent.Operation.UPDATE, 0)));
+        cache.findById(1L);
+        cache.findById(2L);
+        verify(delegate, times(2)).findById(1L);
+        verify(delegate, times(1)).findById(2L);
+
+        cache.onResync();
+        cache.findById(2L);
+        verify(delegate, times(2)).findById(2L);
+    }
+
+    @Test
+    void shouldExpireEntriesAfterTtl() throws Exception {
+        cache.close();
+        cache = new CachingUserDao(delegate, 100, Duration.ofMillis(20), Duration.ofMillis(20),
+                Duration.ofMillis(20));
+        when(delegate.findById(1L)).thenReturn(Optional.of(user(1L, "john@example.com")));
+
+        cache.findById(1L);
+        Thread.sleep(40);
+        cache.findById(1L);
+
+        verify(delegate, times(2)).findById(1L);
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.userservice.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorPublisherTest {
+
+    // Курсор по числам 1..size, запоминает запрошенные размеры порций
+    private static final class CountingCursor implements CursorPublisher.Cursor<Integer> {
+        private final int size;
+        private final List<Integer> fetchSizes = new ArrayList<>();
+        private int position;
+        private boolean closed;
+
+        CountingCursor(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public Integer next(int fetchSize) {
+            assertFalse(closed);
+            fetchSizes.add(fetchSize);
+            return position < size ? ++position : null;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<Integer> {
+        private final List<Integer> items = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @Test
+    void shouldReadOnlyRequestedRowsWithFetchSizeFollowingDemand() {
+        CountingCursor cursor = new CountingCursor(1_000);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new CursorPublisher<>(() -> cursor, Runnable::run, 4, 100).subscribe(subscriber);
+
+        subscriber.subscription.request(2);
+        assertEquals(List.of(1, 2), subscriber.items);
+        assertEquals(2, cursor.position);
+        assertEquals(List.of(4, 4), cursor.fetchSizes);
+
+        subscriber.subscription.request(500);
+        assertEquals(502, cursor.position);
+        // Порция ограничена сверху и уменьшается вместе с оставшимся спросом
+        assertEquals(100, cursor.fetchSizes.get(2));
+        assertEquals(4, cursor.fetchSizes.get(cursor.fetchSizes.size() - 1));
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    void shouldCloseCursorOnCancelAndOnCompletion() {
+        CountingCursor cancelled = new CountingCursor(10);
+        RecordingSubscriber first = new RecordingSubscriber();
+        new CursorPublisher<>(() -> cancelled, Runnable::run, 1, 10).subscribe(first);
+        first.subscription.request(3);
+        first.subscription.cancel();
+        first.subscription.request(3);
+
+        assertTrue(cancelled.closed);
+        assertEquals(List.of(1, 2, 3), first.items);
+        assertFalse(first.completed);
+
+        CountingCursor exhausted = new CountingCursor(2);
+        RecordingSubscriber second = new RecordingSubscriber();
+        new CursorPublisher<>(() -> exhausted, Runnable::run, 1, 10).subscribe(second);
+        second.subscription.request(Long.MAX_VALUE);
+
+        assertTrue(exhausted.closed);
+        assertTrue(second.completed);
+        assertEquals(List.of(1, 2), second.items);
+    }
+
+    @Test
+    void shouldReportCursorFailureAndInvalidRequest() {
+        CountingCursor cursor = new CountingCursor(10);
+        RecordingSubscriber failing = new RecordingSubscriber();
+        new CursorPublisher<Integer>(() -> {
+            throw new RuntimeException("Failed to stream users");
+        }, Runnable::run, 1, 10).subscribe(failing);
+        failing.subscription.request(1);
+        assertEquals("Failed to stream users", failing.error.getMessage());
+
+        RecordingSubscriber invalid = new RecordingSubscriber();
+        new CursorPublisher<>(() -> cursor, Runnable::run, 1, 10).subscribe(invalid);
+        invalid.subscription.request(1);
+        invalid.subscription.request(0);
+        assertInstanceOf(IllegalArgumentException.class, invalid.error);
+        assertTrue(cursor.closed);
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.userservice.dao;
+
+import org.example.userservice.model.User;
+import org.example.userservice.model.UserPatch;
+import org.example.userservice.model.UserSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryUserDaoTest {
+
+    private InMemoryUserDao userDao;
+
+    @BeforeEach
+    void setUp() {
+        userDao = new InMemoryUserDao();
+    }
+
+    @Test
+    void shouldSaveAndFindCopies() {
+        User user = new User("John Doe", "john@test.com", 25);
+        Long id = userDao.save(user);
+
+        assertEquals(id, user.getId());
+        User found = userDao.findById(id).orElseThrow();
+        found.setName("Changed Outside");
+        assertEquals("John Doe", userDao.findById(id).orElseThrow().getName());
+        assertTrue(userDao.findByEmail("JOHN@test.com").isPresent());
+    }
+
+    @Test
+    void shouldMatchHibernateErrorSemantics() {
+        Long id = userDao.save(new User("First", "dup@test.com", 25));
+        userDao.save(new User("Second", "other@test.com", 30));
+
+        RuntimeException duplicate = assertThrows(RuntimeException.class,
+                () -> userDao.save(new User("Copy", "DUP@test.com", 35)));
+        assertEquals("Failed to save user", duplicate.getMessage());
+
+        User moved = userDao.findByEmail("other@test.com").orElseThrow();
+        moved.setEmail("dup@test.com");
+        assertEquals("Failed to update user", assertThrows(RuntimeException.class, () -> userDao.update(moved)).getMessage());
+
+        User missing = new User("Missing", "missing@test.com", 40);
+        missing.setId(999L);
+        assertEquals("Failed to update user", assertThrows(RuntimeException.class, () -> userDao.update(missing)).getMessage());
+
+        userDao.delete(999L);
+        userDao.delete(id);
+        assertTrue(userDao.findById(id).isEmpty());
+        // Освободившийся email можно занять снова
+        assertNotNull(userDao.save(new User("Reused", "dup@test.com", 45)));
+    }
+
+    @Test
+    void shouldPageAndQueryByCreatedRange() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            User user = new User("User", "user" + i + "@test.com", 20 + i);
+            user.setCreatedAt(LocalDateTime.of(2024, 1 + i, 1, 0, 0));
+            ids.add(userDao.save(user));
+        }
+
+        List<UserSummary> page = userDao.findSummariesAfter(ids.get(1), 2);
+        assertEquals(List.of(ids.get(2), ids.get(3)), page.stream().map(UserSummary::id).toList());
+        assertEquals(List.of(ids.get(3), ids.get(1)),
+                userDao.findAllById(List.of(ids.get(3), 999L, ids.get(1))).stream().map(User::getId).toList());
+
+        LocalDateTime from = LocalDateTime.of(2024, 2, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 4, 1, 0, 0);
+        assertEquals(2, userDao.countByCreatedBetween(from, to));
+        assertEquals(ids.get(1), userDao.findByCreatedBetween(from, to).get(0).getId());
+    }
+
+    @Test
+    void shouldApplyUpdateAllAtomically() {
+        Long first = userDao.save(new User("First", "first@test.com", 25));
+        Long second = userDao.save(new User("Second", "second@test.com", 30));
+
+        // Обмен email внутри пачки допустим
+        Set<Long> updated = userDao.updateAll(Map.of(
+                first, new UserPatch(null, "second@test.com", null),
+                second, new UserPatch(null, "first@test.com", 31),
+                999L, new UserPatch("Missing", null, null)));
+        assertEquals(Set.of(first, second), updated);
+        assertEquals(second, userDao.findByEmail("first@test.com").orElseThrow().getId());
+
+        Long third = userDao.save(new User("Third", "third@test.com", 35));
+        assertThrows(RuntimeException.class, () -> userDao.updateAll(Map.of(
+                first, new UserPatch("Renamed", null, null),
+                third, new UserPatch(null, "first@test.com", null))));
+        assertEquals("First", userDao.findById(first).orElseThrow().getName());
+    }
+
+    @Test
+    void shouldAllowOnlyOneConcurrentSaveOfSameEmail() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    userDao.save(new User("Racer", "race@test.com", 25));
+                    return true;
+                } catch (RuntimeException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+
+        int saved = 0;
+        for (Future<Boolean> result : results) {
+            saved += result.get(5, TimeUnit.SECONDS) ? 1 : 0;
+        }
+        executor.shutdown();
+        assertEquals(1, saved);
+        assertEquals(1, userDao.size());
+    }
+
+    @Test
+    void shouldRestoreFromSnapshot(@TempDir Path dir) {
+        Path file = dir.resolve("users.snapshot");
+        Long id;
+        try (InMemoryUserDao original = new InMemoryUserDao(file)) {
+            id = original.save(new User("Persisted", "persisted@test.com", null));
+        }
+
+        InMemoryUserDao restored = new InMemoryUserDao(file);
+        User user = restored.findById(id).orElseThrow();
+        assertEquals("persisted@test.com", user.getEmail());
+        assertNull(user.getAge());
+        // Последовательность продолжается, а не начинается заново
+        assertTrue(restored.save(new User("Next", "next@test.com", 30)) > id);
+        assertThrows(RuntimeException.class, () -> restored.save(new User("Dup", "PERSISTED@test.com", 30)));
+    }
+}
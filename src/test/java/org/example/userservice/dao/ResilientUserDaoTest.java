@@ -0,0 +1,108 @@
+package org.example.userservice.dao;
+
+import org.example.userservice.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ResilientUserDaoTest {
+
+    private UserDao delegate;
+    private CircuitBreaker circuitBreaker;
+    private ResilientUserDao dao;
+
+    // Так ошибки приходят из UserDaoImpl: RuntimeException поверх исключения Hibernate с SQLException внутри
+    private static RuntimeException failure(String sqlState) {
+        return new RuntimeException("Failed to find user",
+                new RuntimeException("JDBC exception", new SQLException("error", sqlState)));
+    }
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(UserDao.class);
+        circuitBreaker = new CircuitBreaker(3, Duration.ofMillis(100), 1);
+        dao = new ResilientUserDao(delegate, 3, Duration.ofMillis(1), Duration.ofMillis(5), circuitBreaker);
+    }
+
+    @Test
+    void shouldClassifySqlStates() {
+        assertTrue(SqlStateClassifier.isTransient(failure("08006")));
+        assertTrue(SqlStateClassifier.isTransient(failure("40001")));
+        assertFalse(SqlStateClassifier.isTransient(failure("23505")));
+        assertFalse(SqlStateClassifier.isTransient(new RuntimeException("no SQL state")));
+    }
+
+    @Test
+    void shouldRetryTransientFailureOfIdempotentOperation() {
+        User user = new User("Retry", "retry@test.com", 25);
+        when(delegate.findById(1L))
+                .thenThrow(failure("40P01"))
+                .thenReturn(Optional.of(user));
+
+        assertEquals(Optional.of(user), dao.findById(1L));
+        verify(delegate, times(2)).findById(1L);
+        assertEquals(1, dao.stats().retries());
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state());
+    }
+
+    @Test
+    void shouldNotRetryPermanentFailureOrSave() {
+        when(delegate.findByEmail("dup@test.com")).thenThrow(failure("23505"));
+        when(delegate.save(any(User.class))).thenThrow(failure("08006"));
+
+        assertThrows(RuntimeException.class, () -> dao.findByEmail("dup@test.com"));
+        assertThrows(RuntimeException.class, () -> dao.save(new User("Once", "once@test.com", 25)));
+
+        verify(delegate, times(1)).findByEmail("dup@test.com");
+        verify(delegate, times(1)).save(any(User.class));
+        assertEquals(1, dao.stats().permanentFailures());
+    }
+
+    @Test
+    void shouldOpenBreakerOnSustainedFailureAndRecoverAfterTrial() throws Exception {
+        List<CircuitBreaker.State> transitions = new ArrayList<>();
+        circuitBreaker.onStateChange(transitions::add);
+        when(delegate.findAll()).thenThrow(failure("08001"));
+
+        assertThrows(RuntimeException.class, () -> dao.findAll());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+
+        // Разомкнутая цепь не пускает к базе
+        assertThrows(CircuitBreakerOpenException.class, () -> dao.findAll());
+        verify(delegate, times(3)).findAll();
+
+        Thread.sleep(150);
+        doReturn(List.of()).when(delegate).findAll();
+        assertTrue(dao.findAll().isEmpty());
+
+        assertEquals(List.of(CircuitBreaker.State.OPEN, CircuitBreaker.State.HALF_OPEN, CircuitBreaker.State.CLOSED),
+                transitions);
+        assertEquals(1, circuitBreaker.stats().rejected());
+    }
+
+    @Test
+    void shouldReleaseTrialSlotWhenTrialThrowsError() throws Exception {
+        when(delegate.findAll()).thenThrow(failure("08001"));
+        assertThrows(RuntimeException.class, () -> dao.findAll());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+
+        Thread.sleep(150);
+        doThrow(new StackOverflowError()).when(delegate).findAll();
+        assertThrows(StackOverflowError.class, () -> dao.findAll());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.state());
+
+        // Следующий пробный вызов пропускается и замыкает цепь
+        doReturn(List.of()).when(delegate).findAll();
+        assertTrue(dao.findAll().isEmpty());
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state());
+    }
+}
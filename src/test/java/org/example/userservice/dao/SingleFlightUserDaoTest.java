@@ -0,0 +1,131 @@
+package org.example.userservice.dao;
+
+import org.example.userservice.model.User;
+import org.example.userservice.util.UnitOfWork;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SingleFlightUserDaoTest {
+    private static final int THREADS = 8;
+
+    @Mock
+    private UserDao delegate;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private List<Future<Optional<User>>> lookupConcurrently(UserDao dao, CountDownLatch started) {
+        List<Future<Optional<User>>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> {
+                started.countDown();
+                return dao.findById(1L);
+            }));
+        }
+        return results;
+    }
+
+    @Test
+    void shouldShareOneQueryBetweenConcurrentCallers() throws Exception {
+        User user = new User("John Doe", "john@example.com", 25);
+        user.setId(1L);
+        CountDownLatch started = new CountDownLatch(THREADS);
+        when(delegate.findById(1L)).thenAnswer(invocation -> {
+            started.await(5, TimeUnit.SECONDS);
+            Thread.sleep(100);
+            return Optional.of(user);
+        });
+        SingleFlightUserDao dao = new SingleFlightUserDao(delegate, Duration.ofSeconds(5));
+
+        List<Future<Optional<User>>> results = lookupConcurrently(dao, started);
+        List<User> users = new ArrayList<>();
+        for (Future<Optional<User>> result : results) {
+            users.add(result.get(5, TimeUnit.SECONDS).orElseThrow());
+        }
+
+        verify(delegate, times(1)).findById(1L);
+        assertEquals(THREADS - 1, dao.stats().coalesced());
+        assertEquals(1, dao.stats().executed());
+        // Каждый получил отдельный объект
+        assertEquals(THREADS, users.stream().map(System::identityHashCode).distinct().count());
+        users.forEach(u -> assertEquals("john@example.com", u.getEmail()));
+    }
+
+    @Test
+    void shouldShareFailureWithWaitingCallers() throws Exception {
+        CountDownLatch started = new CountDownLatch(THREADS);
+        when(delegate.findById(1L)).thenAnswer(invocation -> {
+            started.await(5, TimeUnit.SECONDS);
+            Thread.sleep(100);
+            throw new RuntimeException("Failed to find user");
+        });
+        SingleFlightUserDao dao = new SingleFlightUserDao(delegate, Duration.ofSeconds(5));
+
+        for (Future<Optional<User>> result : lookupConcurrently(dao, started)) {
+            Exception e = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertEquals("Failed to find user", e.getCause().getMessage());
+        }
+        verify(delegate, times(1)).findById(1L);
+    }
+
+    @Test
+    void shouldQueryDirectlyWhenWaitTimesOut() throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.findById(1L))
+                .thenAnswer(invocation -> {
+                    leaderStarted.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return Optional.empty();
+                })
+                .thenReturn(Optional.empty());
+        SingleFlightUserDao dao = new SingleFlightUserDao(delegate, Duration.ofMillis(50));
+
+        Future<Optional<User>> leader = executor.submit(() -> dao.findById(1L));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+        assertTrue(dao.findById(1L).isEmpty());
+        release.countDown();
+        leader.get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, dao.stats().waitTimeouts());
+        verify(delegate, times(2)).findById(1L);
+    }
+
+    @Test
+    void shouldBypassCoalescingInsideUnitOfWork() {
+        when(delegate.findByEmail("john@example.com")).thenReturn(Optional.empty());
+        SingleFlightUserDao dao = new SingleFlightUserDao(delegate);
+
+        UnitOfWork.run(() -> dao.findByEmail("john@example.com"));
+
+        assertEquals(1, dao.stats().executed());
+        assertEquals(0, dao.stats().coalesced());
+    }
+}
@@ -1,7 +1,15 @@
 package org.example.userservice.dao;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.example.userservice.jfr.UserDaoEvent;
+import org.example.userservice.maintenance.UserPartitionManager;
 import org.example.userservice.model.User;
+import org.example.userservice.model.UserPatch;
+import org.example.userservice.model.UserSummary;
 import org.example.userservice.util.HibernateUtil;
+import org.example.userservice.util.UnitOfWork;
 import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.*;
 import org.testcontainers.containers.PostgreSQLContainer;
@@ -9,8 +17,24 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.MountableFile;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -29,7 +53,6 @@ class UserDaoIntegrationTest {
             );
 
     private UserDao userDao;
-    private SessionFactory sessionFactory;
 
     @BeforeAll
     void setup() {
@@ -37,13 +60,14 @@ class UserDaoIntegrationTest {
         System.setProperty("hibernate.connection.username", postgres.getUsername());
         System.setProperty("hibernate.connection.password", postgres.getPassword());
 
-        sessionFactory = HibernateUtil.getSessionFactory();
+        HibernateUtil.getSessionFactory();
         userDao = new UserDaoImpl();
     }
 
     @BeforeEach
     void cleanDatabase() {
-        try (var session = sessionFactory.openSession()) {
+        // Фабрика могла смениться в тесте горячей замены
+        try (var session = HibernateUtil.getSessionFactory().openSession()) {
             var transaction = session.beginTransaction();
             session.createMutationQuery("DELETE FROM User").executeUpdate();
             transaction.commit();
@@ -52,9 +76,7 @@ class UserDaoIntegrationTest {
 
     @AfterAll
     void tearDown() {
-        if (sessionFactory != null) {
-            sessionFactory.close();
-        }
+        HibernateUtil.resetSessionFactory();
     }
 
     @Test
@@ -87,6 +109,18 @@ class UserDaoIntegrationTest {
         assertFalse(foundUser.isPresent());
     }
 
+    @Test
+    void shouldFindAllByIdInRequestedOrder() {
+        Long firstId = userDao.save(new User("First", "first@test.com", 25));
+        Long secondId = userDao.save(new User("Second", "second@test.com", 30));
+
+        List<User> users = userDao.findAllById(List.of(secondId, 999L, firstId));
+
+        assertEquals(2, users.size());
+        assertEquals(secondId, users.get(0).getId());
+        assertEquals(firstId, users.get(1).getId());
+    }
+
     @Test
     void shouldFindAllUsers() {
         userDao.save(new User("User1", "user1@test.com", 25));
@@ -97,6 +131,21 @@ class UserDaoIntegrationTest {
         assertEquals(2, users.size());
     }
 
+    @Test
+    void shouldPageUserSummariesByKeyset() {
+        Long firstId = userDao.save(new User("User1", "user1@test.com", 25));
+        Long secondId = userDao.save(new User("User2", "user2@test.com", 30));
+        Long thirdId = userDao.save(new User("User3", "user3@test.com", 35));
+
+        List<UserSummary> firstPage = userDao.findSummariesAfter(null, 2);
+        List<UserSummary> secondPage = userDao.findSummariesAfter(firstPage.get(1).id(), 2);
+
+        assertEquals(List.of(new UserSummary(firstId, "User1", "user1@test.com"),
+                new UserSummary(secondId, "User2", "user2@test.com")), firstPage);
+        assertEquals(List.of(new UserSummary(thirdId, "User3", "user3@test.com")), secondPage);
+        assertEquals(3, userDao.findSummaries().size());
+    }
+
     @Test
     void shouldUpdateUser() {
         User user = new User("Old Name", "old@test.com", 25);
@@ -135,4 +184,276 @@ class UserDaoIntegrationTest {
         assertTrue(foundUser.isPresent());
         assertEquals("Email User", foundUser.get().getName());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldFindUserByEmailIgnoringCase() {
+        userDao.save(new User("Email User", "case@test.com", 25));
+
+        assertTrue(userDao.findByEmail("Case@Test.COM").isPresent());
+    }
+
+    @Test
+    void shouldRejectEmailDifferingOnlyInCase() {
+        userDao.save(new User("First", "dup@test.com", 25));
+
+        assertThrows(RuntimeException.class, () -> userDao.save(new User("Second", "DUP@test.com", 30)));
+    }
+
+    @Test
+    void shouldUpdateAllUsersInOneTransaction() {
+        Long firstId = userDao.save(new User("First", "first@test.com", 25));
+        Long secondId = userDao.save(new User("Second", "second@test.com", 30));
+
+        Set<Long> updated = userDao.updateAll(Map.of(
+                firstId, new UserPatch("First Renamed", null, null),
+                secondId, new UserPatch(null, null, 31),
+                999L, new UserPatch("Missing", null, null)
+        ));
+
+        assertEquals(Set.of(firstId, secondId), updated);
+        assertEquals("First Renamed", userDao.findById(firstId).orElseThrow().getName());
+        assertEquals(25, userDao.findById(firstId).orElseThrow().getAge());
+        assertEquals(31, userDao.findById(secondId).orElseThrow().getAge());
+    }
+
+    @Test
+    void shouldRollbackAllOperationsOfFailedUnitOfWork() {
+        Long userId = userDao.save(new User("Keep Me", "keep@test.com", 25));
+
+        assertThrows(IllegalStateException.class, () -> UnitOfWork.run(() -> {
+            userDao.save(new User("Rolled Back", "rolledback@test.com", 30));
+            userDao.delete(userId);
+            throw new IllegalStateException("Abort");
+        }));
+
+        assertTrue(userDao.findById(userId).isPresent());
+        assertFalse(userDao.findByEmail("rolledback@test.com").isPresent());
+    }
+
+    @Test
+    void shouldShareSessionWithinUnitOfWork() {
+        Long userId = userDao.save(new User("Shared", "shared@test.com", 25));
+
+        UnitOfWork.run(() -> {
+            User first = userDao.findById(userId).orElseThrow();
+            User second = userDao.findById(userId).orElseThrow();
+            assertSame(first, second);
+        });
+    }
+
+    @Test
+    void shouldFindUsersCreatedInRange() {
+        User january = new User("January", "january@test.com", 25);
+        january.setCreatedAt(LocalDateTime.of(2024, 1, 15, 12, 0));
+        User february = new User("February", "february@test.com", 30);
+        february.setCreatedAt(LocalDateTime.of(2024, 2, 1, 0, 0));
+        userDao.save(january);
+        userDao.save(february);
+
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 2, 1, 0, 0);
+        List<User> users = userDao.findByCreatedBetween(from, to);
+
+        assertEquals(1, users.size());
+        assertEquals("january@test.com", users.get(0).getEmail());
+        assertEquals(2, userDao.countByCreatedBetween(from, to.plusDays(1)));
+    }
+
+    @Test
+    void shouldKeepEmailUniqueAcrossPartitions() {
+        User old = new User("Old", "spread@test.com", 25);
+        old.setCreatedAt(LocalDateTime.of(2021, 3, 1, 0, 0));
+        userDao.save(old);
+
+        assertThrows(RuntimeException.class, () -> userDao.save(new User("New", "spread@test.com", 30)));
+    }
+
+    @Test
+    void shouldDropExpiredPartitionAndReleaseEmails() throws Exception {
+        try (Connection connection = HibernateUtil.openDedicatedConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("SELECT user_service.ensure_users_partitions('2019-01-01', 0)");
+        }
+        User expired = new User("Expired", "expired@test.com", 25);
+        expired.setCreatedAt(LocalDateTime.of(2019, 1, 10, 0, 0));
+        Long expiredId = userDao.save(expired);
+        Long recentId = userDao.save(new User("Recent", "recent@test.com", 30));
+
+        UserPartitionManager manager = new UserPartitionManager(
+                HibernateUtil::openDedicatedConnection, UserPartitionManager.DEFAULT_MONTHS_AHEAD, 0);
+        List<String> dropped = manager.dropPartitionsBefore(YearMonth.of(2019, 2));
+
+        assertEquals(List.of("users_p2019_01"), dropped);
+        assertFalse(userDao.findById(expiredId).isPresent());
+        assertTrue(userDao.findById(recentId).isPresent());
+        // Реестр email очищен вместе с секцией
+        assertNotNull(userDao.save(new User("Reused", "expired@test.com", 35)));
+    }
+
+    @Test
+    void shouldMoveDefaultPartitionRowsIntoCreatedPartition() throws Exception {
+        // Месяц вне созданных секций — строка попадает в users_default
+        YearMonth month = YearMonth.now().plusMonths(UserPartitionManager.DEFAULT_MONTHS_AHEAD + 3);
+        User early = new User("Early", "early@test.com", 25);
+        early.setCreatedAt(month.atDay(5).atStartOfDay());
+        Long earlyId = userDao.save(early);
+
+        int created;
+        try (Connection connection = HibernateUtil.openDedicatedConnection()) {
+            created = UserPartitionManager.ensureFuturePartitions(
+                    connection, UserPartitionManager.DEFAULT_MONTHS_AHEAD + 3);
+        }
+
+        assertTrue(created >= 1);
+        assertEquals("Early", userDao.findById(earlyId).orElseThrow().getName());
+        try (Connection connection = HibernateUtil.openDedicatedConnection();
+             Statement statement = connection.createStatement();
+             var rows = statement.executeQuery("SELECT c.relname FROM user_service.users u"
+                     + " JOIN pg_class c ON c.oid = u.tableoid WHERE u.id = " + earlyId)) {
+            assertTrue(rows.next());
+            assertEquals(String.format("users_p%d_%02d", month.getYear(), month.getMonthValue()),
+                    rows.getString(1));
+        }
+        // Реестр email пережил перенос строки
+        assertThrows(RuntimeException.class, () -> userDao.save(new User("Duplicate", "early@test.com", 30)));
+    }
+
+    @Test
+    void shouldCountBatchedWritesInJfrEvents() throws Exception {
+        UserDao recorded = new JfrUserDao(userDao);
+        Path file = Files.createTempFile("user-dao", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(UserDaoEvent.NAME).withThreshold(Duration.ZERO);
+            recording.start();
+            // Первая вставка может забрать блок id, вторая — только пакетный INSERT
+            recorded.save(new User("First", "jfr1@test.com", 25));
+            recorded.save(new User("Second", "jfr2@test.com", 30));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> saves = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> "save".equals(event.getString("operation")))
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                .toList();
+        Files.delete(file);
+
+        assertEquals(2, saves.size());
+        assertTrue(saves.get(1).getLong("statements") >= 1);
+    }
+
+    @Test
+    void shouldDeleteOldUsersByKeysetChunks() {
+        List<Long> oldIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User old = new User("Old", "old" + i + "@test.com", 25);
+            old.setCreatedAt(LocalDateTime.of(2022, 5, 1 + i, 0, 0));
+            oldIds.add(userDao.save(old));
+        }
+        Long recentId = userDao.save(new User("Recent", "fresh@test.com", 30));
+        LocalDateTime cutoff = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+        assertEquals(oldIds.subList(0, 2), userDao.deleteCreatedBefore(cutoff, null, 2));
+        assertEquals(oldIds.subList(2, 3), userDao.deleteCreatedBefore(cutoff, oldIds.get(1), 2));
+        assertTrue(userDao.deleteCreatedBefore(cutoff, oldIds.get(2), 2).isEmpty());
+
+        assertTrue(userDao.findById(recentId).isPresent());
+        // Триггер освобождает email удалённых
+        assertNotNull(userDao.save(new User("Reused", "old0@test.com", 35)));
+    }
+
+    @Test
+    void shouldSwapSessionFactoryAfterOpenSessionsFinish() throws Exception {
+        Long id = userDao.save(new User("Swap", "swap@test.com", 30));
+        SessionFactory before = HibernateUtil.getSessionFactory();
+
+        CompletableFuture<HibernateUtil.SwapResult> swap = UnitOfWork.execute(() -> {
+            assertTrue(userDao.findById(id).isPresent());
+            CompletableFuture<HibernateUtil.SwapResult> started =
+                    HibernateUtil.swapSessionFactory(Map.of("hibernate.connection.pool_size", "5"));
+            while (HibernateUtil.getSessionFactory() == before && !started.isDone()) {
+                Thread.onSpinWait();
+            }
+            // Новые сессии уже идут на новую фабрику, а начатая единица работы продолжает на старой
+            assertFalse(before.isClosed());
+            assertTrue(userDao.findById(id).isPresent());
+            return started;
+        });
+
+        HibernateUtil.SwapResult result = swap.get(30, TimeUnit.SECONDS);
+        assertEquals(1, result.drainedSessions());
+        assertEquals(0, result.abandoned());
+        assertTrue(before.isClosed());
+        assertTrue(userDao.findById(id).isPresent());
+        assertTrue(HibernateUtil.stats().swaps() >= 1);
+    }
+
+    @Test
+    void shouldStreamUsersOnDemandAndStopOnCancel() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(userDao.save(new User("Stream " + i, "stream" + i + "@test.com", 20 + i)));
+        }
+        List<Long> received = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        userDao.streamAll().subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(User user) {
+                received.add(user.getId());
+                if (received.size() == 3) {
+                    subscription.cancel();
+                    done.countDown();
+                } else {
+                    subscription.request(1);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(ids.subList(0, 3), received);
+    }
+
+    @Test
+    void shouldBulkUpdateWithArrayParametersAndRefreshLoadedUsers() {
+        Long first = userDao.save(new User("First", "bulk1@test.com", 20));
+        Long second = userDao.save(new User("Second", "bulk2@test.com", 30));
+
+        Set<Long> updated = UnitOfWork.execute(() -> {
+            User loaded = userDao.findById(first).orElseThrow();
+            Set<Long> ids = userDao.updateAll(Map.of(
+                    first, new UserPatch(null, null, 21),
+                    second, new UserPatch("Renamed", "bulk2new@test.com", null),
+                    Long.MAX_VALUE, new UserPatch(null, null, 50)));
+            // Сущность в контексте сессии перечитана после UPDATE мимо Hibernate
+            assertEquals(21, loaded.getAge());
+            return ids;
+        });
+
+        assertEquals(Set.of(first, second), updated);
+        User renamed = userDao.findById(second).orElseThrow();
+        assertEquals("Renamed", renamed.getName());
+        assertEquals("bulk2new@test.com", renamed.getEmail());
+        assertEquals(30, renamed.getAge());
+        // Триггер реестра освобождает старый email
+        assertNotNull(userDao.save(new User("Reused", "bulk2@test.com", 35)));
+    }
+}
@@ -0,0 +1,215 @@
+package org.example.userservice.dao;
+
+import org.example.userservice.model.User;
+import org.example.userservice.model.UserPatch;
+import org.example.userservice.service.UserService;
+import org.example.userservice.util.HibernateUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindUserDaoTest {
+
+    @Mock
+    private UserDao delegate;
+
+    private WriteBehindUserDao writeBehindDao;
+
+    @BeforeEach
+    void setUp() {
+        // По умолчанию существует любой пользователь, кроме 999
+        lenient().when(delegate.findAllById(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream()
+                    .filter(id -> id != 999L)
+                    .map(id -> user(id, "Existing", "existing" + id + "@example.com", 20))
+                    .toList();
+        });
+        writeBehindDao = new WriteBehindUserDao(delegate, 2, 100, Duration.ofHours(1), Duration.ofMillis(50));
+    }
+
+    @AfterEach
+    void tearDown() {
+        writeBehindDao.close();
+    }
+
+    private static User user(Long id, String name, String email, Integer age) {
+        User user = new User(name, email, age);
+        user.setId(id);
+        return user;
+    }
+
+    @Test
+    void shouldNotWriteUntilFlush() {
+        writeBehindDao.update(user(1L, "John Doe", "john@example.com", 25));
+
+        verify(delegate, never()).updateAll(anyMap());
+        assertEquals(1, writeBehindDao.pendingCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldCoalesceUpdatesPerUserWithLastWriteWins() {
+        writeBehindDao.update(user(1L, "John Doe", "john@example.com", 25));
+        writeBehindDao.updateAll(Map.of(1L, new UserPatch(null, null, 30)));
+
+        writeBehindDao.flush();
+
+        ArgumentCaptor<Map<Long, UserPatch>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(delegate, times(1)).updateAll(captor.capture());
+        assertEquals(new UserPatch("John Doe", "john@example.com", 30), captor.getValue().get(1L));
+        assertEquals(0, writeBehindDao.pendingCount());
+    }
+
+    @Test
+    void shouldOverlayPendingChangesOnReads() {
+        when(delegate.findById(1L)).thenReturn(Optional.of(user(1L, "Old Name", "old@example.com", 25)));
+        writeBehindDao.updateAll(Map.of(1L, new UserPatch("New Name", null, null)));
+
+        Optional<User> result = writeBehindDao.findById(1L);
+
+        assertTrue(result.isPresent());
+        assertEquals("New Name", result.get().getName());
+        assertEquals("old@example.com", result.get().getEmail());
+    }
+
+    @Test
+    void shouldFindUserByPendingEmailAndHideOldEmail() {
+        when(delegate.findById(1L)).thenReturn(Optional.of(user(1L, "John Doe", "old@example.com", 25)));
+        when(delegate.findByEmail("old@example.com"))
+                .thenReturn(Optional.of(user(1L, "John Doe", "old@example.com", 25)));
+        writeBehindDao.updateAll(Map.of(1L, new UserPatch(null, "new@example.com", null)));
+
+        assertTrue(writeBehindDao.findByEmail("new@example.com").isPresent());
+        assertFalse(writeBehindDao.findByEmail("old@example.com").isPresent());
+    }
+
+    @Test
+    void shouldApplyBackpressureWhenBufferIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return Set.of();
+        }).when(delegate).updateAll(anyMap());
+        try {
+            writeBehindDao.updateAll(Map.of(1L, new UserPatch("Aa", null, null)));
+            writeBehindDao.updateAll(Map.of(2L, new UserPatch("Bb", null, null)));
+            // Буфер полон: ждём, пока фоновый сброс заберёт пачку
+            writeBehindDao.updateAll(Map.of(3L, new UserPatch("Cc", null, null)));
+            writeBehindDao.updateAll(Map.of(4L, new UserPatch("Dd", null, null)));
+
+            // Повторное изменение уже буферизованного пользователя место не занимает
+            assertDoesNotThrow(() -> writeBehindDao.updateAll(Map.of(4L, new UserPatch("Ee", null, null))));
+            // Запись висит, места нет — отказ по таймауту
+            assertThrows(IllegalStateException.class,
+                    () -> writeBehindDao.updateAll(Map.of(5L, new UserPatch("Ff", null, null))));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void shouldDropPendingChangesOnDelete() {
+        writeBehindDao.updateAll(Map.of(1L, new UserPatch("New Name", null, null)));
+
+        writeBehindDao.delete(1L);
+        writeBehindDao.flush();
+
+        verify(delegate).delete(1L);
+        verify(delegate, never()).updateAll(anyMap());
+    }
+
+    @Test
+    void shouldFlushOnHibernateShutdown() {
+        writeBehindDao.updateAll(Map.of(1L, new UserPatch("New Name", null, null)));
+
+        HibernateUtil.shutdown();
+
+        verify(delegate).updateAll(Map.of(1L, new UserPatch("New Name", null, null)));
+        assertThrows(IllegalStateException.class,
+                () -> writeBehindDao.updateAll(Map.of(2L, new UserPatch("Aa", null, null))));
+    }
+
+    @Test
+    void shouldKeepConcurrentUpdatesOfDifferentFields() throws Exception {
+        // Оба вызова читают строку до того, как кто-то из них запишет
+        CountDownLatch bothRead = new CountDownLatch(2);
+        when(delegate.findById(1L)).thenAnswer(invocation -> {
+            bothRead.countDown();
+            assertTrue(bothRead.await(5, TimeUnit.SECONDS));
+            return Optional.of(user(1L, "John Doe", "john@example.com", 25));
+        });
+        UserService userService = new UserService(writeBehindDao);
+
+        CompletableFuture<Boolean> rename = CompletableFuture.supplyAsync(
+                () -> userService.updateUser(1L, "New Name", null, null));
+        CompletableFuture<Boolean> age = CompletableFuture.supplyAsync(
+                () -> userService.updateUser(1L, null, null, 30));
+        assertTrue(rename.get(5, TimeUnit.SECONDS));
+        assertTrue(age.get(5, TimeUnit.SECONDS));
+        writeBehindDao.flush();
+
+        verify(delegate).updateAll(Map.of(1L, new UserPatch("New Name", null, 30)));
+    }
+
+    @Test
+    void shouldBufferOnlyExistingUsersAndReportTheRest() {
+        Set<Long> updated = writeBehindDao.updateAll(Map.of(
+                1L, new UserPatch("New Name", null, null),
+                999L, new UserPatch("Missing", null, null)));
+
+        assertEquals(Set.of(1L), updated);
+        assertEquals(1, writeBehindDao.pendingCount());
+
+        // Уже буферизованный id повторно не проверяется
+        clearInvocations(delegate);
+        assertEquals(Set.of(1L), writeBehindDao.updateAll(Map.of(1L, new UserPatch(null, null, 30))));
+        verify(delegate, never()).findAllById(anyCollection());
+    }
+
+    @Test
+    void shouldFlushButStayOpenOnSessionFactoryReset() {
+        writeBehindDao.updateAll(Map.of(1L, new UserPatch("New Name", null, null)));
+
+        HibernateUtil.resetSessionFactory();
+
+        verify(delegate).updateAll(Map.of(1L, new UserPatch("New Name", null, null)));
+        writeBehindDao.updateAll(Map.of(2L, new UserPatch("Aa", null, null)));
+        writeBehindDao.flush();
+        verify(delegate).updateAll(Map.of(2L, new UserPatch("Aa", null, null)));
+    }
+
+    @Test
+    void shouldRetryFailedBatchOneByOne() {
+        when(delegate.updateAll(anyMap()))
+                .thenThrow(new RuntimeException("Failed to update users"))
+                .thenReturn(Set.of(1L))
+                .thenThrow(new RuntimeException("Failed to update users"));
+        writeBehindDao.updateAll(Map.of(1L, new UserPatch("Aa", null, null)));
+        writeBehindDao.updateAll(Map.of(2L, new UserPatch("Bb", null, null)));
+
+        assertDoesNotThrow(() -> writeBehindDao.flush());
+
+        verify(delegate, times(3)).updateAll(anyMap());
+        assertEquals(0, writeBehindDao.pendingCount());
+    }
+}
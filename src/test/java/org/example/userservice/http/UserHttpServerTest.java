@@ -0,0 +1,105 @@
+package org.example.userservice.http;
+
+import org.example.userservice.model.User;
+import org.example.userservice.model.UserSummary;
+import org.example.userservice.service.ServiceOverloadedException;
+import org.example.userservice.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserHttpServerTest {
+
+    private UserService userService;
+    private UserHttpServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userService = mock(UserService.class);
+        server = new UserHttpServer(userService, new InetSocketAddress("localhost", 0), 4, Duration.ofMillis(200));
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + path))
+                .method(method, body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void shouldCreateAndGetUser() throws Exception {
+        when(userService.createUser("John Doe", "john@example.com", 25)).thenReturn(7L);
+        User user = new User("John Doe", "john@example.com", 25);
+        user.setId(7L);
+        when(userService.getUserById(7L)).thenReturn(Optional.of(user));
+
+        HttpResponse<String> created = send("POST", "/users",
+                "{\"name\":\"John Doe\",\"email\":\"john@example.com\",\"age\":25}");
+        HttpResponse<String> found = send("GET", "/users/7", null);
+
+        assertEquals(201, created.statusCode());
+        assertEquals("{\"id\":7}", created.body());
+        assertEquals(200, found.statusCode());
+        assertTrue(found.body().contains("\"email\":\"john@example.com\""));
+    }
+
+    @Test
+    void shouldStreamSummaryPageWithCursor() throws Exception {
+        when(userService.getUserSummaries(null, 2)).thenReturn(List.of(
+                new UserSummary(1L, "First", "first@example.com"),
+                new UserSummary(2L, "Second", "second@example.com")));
+
+        HttpResponse<String> page = send("GET", "/users?limit=2", null);
+
+        assertEquals(200, page.statusCode());
+        assertTrue(page.body().startsWith("{\"items\":[{\"id\":1,"));
+        assertTrue(page.body().endsWith("\"nextAfterId\":2}"));
+    }
+
+    @Test
+    void shouldMapErrorsToStatusCodes() throws Exception {
+        when(userService.getUserById(1L)).thenReturn(Optional.empty());
+        when(userService.deleteUser(2L)).thenThrow(new IllegalArgumentException("ID must be a positive number"));
+        when(userService.getUserById(3L)).thenThrow(new ServiceOverloadedException("READ", "queue is full"));
+        when(userService.getUserById(4L)).thenAnswer(invocation -> {
+            Thread.sleep(1_000);
+            return Optional.empty();
+        });
+
+        assertEquals(404, send("GET", "/users/1", null).statusCode());
+        assertEquals(400, send("DELETE", "/users/2", null).statusCode());
+        assertEquals(400, send("GET", "/users/abc", null).statusCode());
+        HttpResponse<String> overloaded = send("GET", "/users/3", null);
+        assertEquals(503, overloaded.statusCode());
+        assertEquals(Optional.of("1"), overloaded.headers().firstValue("Retry-After"));
+        assertEquals(504, send("GET", "/users/4", null).statusCode());
+        assertEquals(405, send("PATCH", "/users", null).statusCode());
+
+        LatencyHistogram.Snapshot stats = server.stats().get("GET /users/{id}");
+        assertEquals(4, stats.count());
+        assertEquals(2, stats.errors());
+        assertTrue(send("GET", "/metrics", null).body().contains("GET /users/{id}"));
+    }
+}
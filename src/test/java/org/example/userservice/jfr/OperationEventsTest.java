@@ -0,0 +1,80 @@
+package org.example.userservice.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperationEventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldRecordNestedOperationsAndSummarizeRecording() throws Exception {
+        Path file = tempDir.resolve("operations.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(UserServiceEvent.NAME).withThreshold(Duration.ZERO);
+            recording.enable(UserDaoEvent.NAME).withThreshold(Duration.ZERO);
+            recording.start();
+
+            OperationEvents.service("getUserById", () -> OperationEvents.dao("findById", () -> {
+                OperationEvents.statementExecuted();
+                return Optional.of("user");
+            }));
+            OperationEvents.dao("updateAll", () -> Set.of(1L, 2L, 3L));
+            assertThrows(IllegalStateException.class, () -> OperationEvents.dao("save", () -> {
+                throw new IllegalStateException("Failed to save user");
+            }));
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent service = single(events, UserServiceEvent.NAME, "getUserById");
+        assertEquals(1, service.getLong("statements"));
+        assertEquals(1, service.getLong("rows"));
+        assertEquals("success", service.getString("outcome"));
+        assertEquals(3, single(events, UserDaoEvent.NAME, "updateAll").getLong("rows"));
+        RecordedEvent failed = single(events, UserDaoEvent.NAME, "save");
+        assertEquals("failure", failed.getString("outcome"));
+        assertEquals(IllegalStateException.class.getName(), failed.getString("error"));
+
+        List<RecordingSummary.Row> rows = RecordingSummary.summarize(file);
+        assertEquals(4, rows.size());
+        RecordingSummary.Row save = rows.stream()
+                .filter(row -> row.layer().equals("dao") && row.operation().equals("save"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1, save.calls());
+        assertEquals(1, save.failures());
+    }
+
+    @Test
+    void shouldCountRowsByResultShape() {
+        assertEquals(0, OperationEvents.rowsOf(null));
+        assertEquals(0, OperationEvents.rowsOf(Optional.empty()));
+        assertEquals(2, OperationEvents.rowsOf(List.of(1, 2)));
+        assertEquals(0, OperationEvents.rowsOf(false));
+        assertEquals(1, OperationEvents.rowsOf(42L));
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String type, String operation) {
+        List<RecordedEvent> matching = events.stream()
+                .filter(event -> event.getEventType().getName().equals(type))
+                .filter(event -> operation.equals(event.getString("operation")))
+                .toList();
+        assertEquals(1, matching.size(), type + " " + operation);
+        return matching.get(0);
+    }
+}
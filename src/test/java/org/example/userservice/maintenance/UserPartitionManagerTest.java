@@ -0,0 +1,51 @@
+package org.example.userservice.maintenance;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+class UserPartitionManagerTest {
+
+    @Test
+    void shouldParsePartitionMonth() {
+        assertEquals(YearMonth.of(2024, 3), UserPartitionManager.monthOf("users_p2024_03"));
+        assertNull(UserPartitionManager.monthOf("users_default"));
+        assertNull(UserPartitionManager.monthOf("users_p2024"));
+    }
+
+    @Test
+    void shouldRejectNegativeSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new UserPartitionManager(() -> null, -1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new UserPartitionManager(() -> null, 3, -1));
+    }
+
+    @Test
+    void shouldDropOnlyPartitionsBeforeCutoff() throws Exception {
+        ResultSet partitions = mock(ResultSet.class);
+        when(partitions.next()).thenReturn(true, true, true, true, false);
+        when(partitions.getString(1)).thenReturn("users_default", "users_p2024_01", "users_p2024_02", "users_p2024_03");
+        Statement statement = mock(Statement.class);
+        when(statement.executeQuery(anyString())).thenReturn(partitions);
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+
+        UserPartitionManager manager = new UserPartitionManager(() -> connection, 3, 0);
+        List<String> dropped = manager.dropPartitionsBefore(YearMonth.of(2024, 3));
+
+        assertEquals(List.of("users_p2024_01", "users_p2024_02"), dropped);
+        verify(statement).execute(contains("DETACH PARTITION user_service.\"users_p2024_01\""));
+        verify(statement).execute("DROP TABLE user_service.\"users_p2024_02\"");
+        verify(statement, never()).execute(contains("users_default"));
+        verify(statement, times(2)).execute(contains("RESYNC"));
+        verify(connection, times(2)).commit();
+    }
+}
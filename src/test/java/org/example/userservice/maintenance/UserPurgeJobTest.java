@@ -0,0 +1,104 @@
+package org.example.userservice.maintenance;
+
+import org.example.userservice.dao.InMemoryUserDao;
+import org.example.userservice.dao.UserDao;
+import org.example.userservice.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserPurgeJobTest {
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private InMemoryUserDao userDao;
+    private List<Long> oldIds;
+
+    @BeforeEach
+    void setUp() {
+        userDao = new InMemoryUserDao();
+        oldIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            // Старые и новые вперемешку: новые не должны задеваться
+            User user = new User("User", "user" + i + "@test.com", 20);
+            user.setCreatedAt(i % 3 == 0 ? CUTOFF.plusDays(i) : CUTOFF.minusDays(i));
+            Long id = userDao.save(user);
+            if (i % 3 != 0) {
+                oldIds.add(id);
+            }
+        }
+    }
+
+    @Test
+    void shouldDeleteOldUsersInChunksAndReportProgress() {
+        List<UserPurgeJob.Progress> progress = new ArrayList<>();
+        UserPurgeJob job = new UserPurgeJob(userDao, 3, Duration.ZERO, Duration.ofMinutes(1));
+
+        UserPurgeJob.Result result = job.purgeCreatedBefore(CUTOFF, null, progress::add);
+
+        assertTrue(result.completed());
+        assertEquals(6, result.deleted());
+        assertEquals(2, result.chunks());
+        assertEquals(oldIds.get(5), result.checkpoint());
+        assertEquals(List.of(3L, 6L), progress.stream().map(UserPurgeJob.Progress::deleted).toList());
+        assertEquals(4, userDao.size());
+        oldIds.forEach(id -> assertTrue(userDao.findById(id).isEmpty()));
+    }
+
+    @Test
+    void shouldStopAtMaxRuntimeAndResumeFromCheckpoint() {
+        UserPurgeJob slow = new UserPurgeJob(userDao, 2, Duration.ofMillis(200), Duration.ofMillis(100));
+
+        UserPurgeJob.Result first = slow.purgeCreatedBefore(CUTOFF);
+        assertFalse(first.completed());
+        assertEquals(2, first.deleted());
+        assertEquals(oldIds.get(1), first.checkpoint());
+
+        UserPurgeJob fast = new UserPurgeJob(userDao, 2, Duration.ZERO, Duration.ofMinutes(1));
+        UserPurgeJob.Result rest = fast.purgeCreatedBefore(CUTOFF, first.checkpoint(), progress -> {
+        });
+        assertTrue(rest.completed());
+        assertEquals(4, rest.deleted());
+        assertEquals(4, userDao.size());
+    }
+
+    @Test
+    void shouldCompleteOnlyAfterEmptyChunk() {
+        UserDao dao = mock(UserDao.class);
+        when(dao.deleteCreatedBefore(eq(CUTOFF), isNull(), eq(2))).thenReturn(List.of(1L));
+        when(dao.deleteCreatedBefore(CUTOFF, 1L, 2)).thenReturn(List.of(7L));
+        when(dao.deleteCreatedBefore(CUTOFF, 7L, 2)).thenReturn(List.of());
+
+        UserPurgeJob.Result result = new UserPurgeJob(dao, 2, Duration.ZERO, Duration.ofMinutes(1))
+                .purgeCreatedBefore(CUTOFF);
+
+        assertTrue(result.completed());
+        assertEquals(2, result.deleted());
+        assertEquals(2, result.chunks());
+        assertEquals(7L, result.checkpoint());
+        verify(dao, times(3)).deleteCreatedBefore(any(), any(), anyInt());
+    }
+
+    @Test
+    void shouldPropagateChunkFailureWithoutFurtherDeletes() {
+        UserDao failing = mock(UserDao.class);
+        when(failing.deleteCreatedBefore(eq(CUTOFF), isNull(), eq(2))).thenReturn(List.of(1L, 2L));
+        when(failing.deleteCreatedBefore(CUTOFF, 2L, 2)).thenThrow(new RuntimeException("Failed to delete users"));
+        List<Long> checkpoints = new ArrayList<>();
+
+        UserPurgeJob job = new UserPurgeJob(failing, 2, Duration.ZERO, Duration.ofMinutes(1));
+        assertThrows(RuntimeException.class,
+                () -> job.purgeCreatedBefore(CUTOFF, null, progress -> checkpoints.add(progress.checkpoint())));
+
+        assertEquals(List.of(2L), checkpoints);
+        verify(failing, times(2)).deleteCreatedBefore(any(), any(), anyInt());
+        assertThrows(IllegalArgumentException.class, () -> new UserPurgeJob(failing, 0, Duration.ZERO, Duration.ofSeconds(1)));
+    }
+}
@@ -0,0 +1,223 @@
+package org.example.userservice.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.userservice.service.UserService;
+import org.example.userservice.util.HibernateUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.function.Executable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.MountableFile;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Регрессионные бюджеты операций {@link UserService} на заполненной базе.
+ * <p>
+ * Для каждой операции проверяются: максимум SQL-выражений за вызов (лишний запрос ловится сразу),
+ * выделенная память на вызов и p99 задержки относительно записанной базовой линии.
+ * Результаты пишутся в {@code target/perf/user-service-perf.json}.
+ * <p>
+ * Запуск: {@code mvn test -Pperf}. Параметры (системные свойства): {@code perf.users} — размер
+ * базы, {@code perf.iterations}, {@code perf.baseline} — файл базовой линии,
+ * {@code perf.tolerance} — допустимый рост p99, {@code perf.recordBaseline=true} — записать
+ * текущие p99 как новую базовую линию. Без файла базовой линии тест падает, если только она
+ * не записывается этим прогоном: иначе рост задержки прошёл бы незамеченным.
+ */
+@Tag("perf")
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserServicePerformanceTest {
+    private static final Logger logger = LoggerFactory.getLogger(UserServicePerformanceTest.class);
+    private static final int SEEDED_USERS = Integer.getInteger("perf.users", 10_000);
+    private static final int WARMUP = Integer.getInteger("perf.warmup", 200);
+    private static final int ITERATIONS = Integer.getInteger("perf.iterations", 1_000);
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("perf.tolerance", "1.5"));
+    private static final Path BASELINE = Path.of(System.getProperty("perf.baseline", "src/test/resources/perf/baseline.json"));
+    private static final Path REPORT = Path.of("target", "perf", "user-service-perf.json");
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test")
+            .withCopyFileToContainer(
+                    MountableFile.forClasspathResource("test-init.sql"),
+                    "/docker-entrypoint-initdb.d/test-init.sql"
+            );
+
+    record Budget(String operation, long maxStatements, long maxAllocatedBytes) {
+    }
+
+    record Measurement(String operation, long statements, long maxStatements, long allocatedBytesPerOp,
+                       long maxAllocatedBytes, double p50Ms, double p99Ms, Double baselineP99Ms,
+                       List<String> violations) {
+    }
+
+    record Report(int seededUsers, int iterations, double tolerance, List<Measurement> results) {
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private UserService userService;
+    // Id идут с шагом последовательности, поэтому сохраняем их, а не диапазон
+    private long[] seededIds;
+
+    @BeforeAll
+    void setup() throws Exception {
+        System.setProperty("hibernate.connection.url", postgres.getJdbcUrl());
+        System.setProperty("hibernate.connection.username", postgres.getUsername());
+        System.setProperty("hibernate.connection.password", postgres.getPassword());
+        System.setProperty("hibernate.session_factory.statement_inspector", StatementCounter.class.getName());
+
+        HibernateUtil.getSessionFactory();
+        seed();
+        userService = new UserService();
+    }
+
+    @AfterAll
+    void tearDown() {
+        HibernateUtil.resetSessionFactory();
+        System.clearProperty("hibernate.session_factory.statement_inspector");
+    }
+
+    // Заполнение одним INSERT ... SELECT: сами операции в замер не попадают
+    private void seed() throws Exception {
+        try (Connection connection = HibernateUtil.openDedicatedConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO user_service.users (name, email, age, created_at) "
+                    + "SELECT 'Perf User', 'perf' || n || '@perf.test', 18 + n % 60, "
+                    + "now() - (n % 365) * interval '1 day' FROM generate_series(1, " + SEEDED_USERS + ") n");
+            seededIds = new long[SEEDED_USERS];
+            try (ResultSet ids = statement.executeQuery("SELECT id FROM user_service.users ORDER BY id")) {
+                for (int i = 0; ids.next() && i < SEEDED_USERS; i++) {
+                    seededIds[i] = ids.getLong(1);
+                }
+            }
+            statement.execute("ANALYZE user_service.users");
+        }
+    }
+
+    @Test
+    void shouldStayWithinBudgets() throws IOException {
+        boolean recordBaseline = Boolean.getBoolean("perf.recordBaseline");
+        assertTrue(recordBaseline || Files.exists(BASELINE), "p99 baseline " + BASELINE.toAbsolutePath()
+                + " is missing; record it on the reference machine with -Dperf.recordBaseline=true");
+        Map<String, Double> baseline = Files.exists(BASELINE)
+                ? mapper.readValue(BASELINE.toFile(), mapper.getTypeFactory().constructMapType(Map.class, String.class, Double.class))
+                : Map.of();
+
+        AtomicLong created = new AtomicLong();
+        AtomicLong cursor = new AtomicLong();
+        // Удаляются пользователи с конца заполненного диапазона, читаются — с начала
+        AtomicLong deleted = new AtomicLong(SEEDED_USERS - 1);
+        List<Long> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(seededIds[i]);
+        }
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Measurement> results = new ArrayList<>();
+        // SELECT по email и INSERT; раз в блок id добавляется nextval
+        results.add(measure(new Budget("createUser", 3, 2_000_000), baseline,
+                () -> userService.createUser("Perf User", "new" + created.incrementAndGet() + "@perf.test", 30)));
+        results.add(measure(new Budget("getUserById", 1, 1_000_000), baseline,
+                () -> userService.getUserById(readId(cursor))));
+        results.add(measure(new Budget("getUsersByIds(100)", 1, 4_000_000), baseline,
+                () -> userService.getUsersByIds(batch)));
+        results.add(measure(new Budget("getUserSummaries(100)", 1, 2_000_000), baseline,
+                () -> userService.getUserSummaries(readId(cursor), 100)));
+        results.add(measure(new Budget("countUsersCreatedBetween", 1, 1_000_000), baseline,
+                () -> userService.countUsersCreatedBetween(now.minusDays(30), now)));
+        // SELECT, UPDATE только изменённых полей и перечитывание загруженной в единице работы сущности
+        results.add(measure(new Budget("updateUser", 3, 2_000_000), baseline,
+                () -> userService.updateUser(readId(cursor),
+                        cursor.get() % 2 == 0 ? "Perf User" : "Perf Renamed", null, null)));
+        results.add(measure(new Budget("deleteUser", 2, 2_000_000), baseline,
+                () -> userService.deleteUser(seededIds[(int) deleted.getAndDecrement()])));
+
+        Files.createDirectories(REPORT.getParent());
+        mapper.writeValue(REPORT.toFile(), new Report(SEEDED_USERS, ITERATIONS, TOLERANCE, results));
+        if (recordBaseline) {
+            Map<String, Double> recorded = new LinkedHashMap<>();
+            results.forEach(result -> recorded.put(result.operation(), result.p99Ms()));
+            Files.createDirectories(BASELINE.toAbsolutePath().getParent());
+            mapper.writeValue(BASELINE.toFile(), recorded);
+        }
+
+        assertAll(results.stream()
+                .map(result -> (Executable) () -> assertTrue(result.violations().isEmpty(),
+                        result.operation() + ": " + result.violations())));
+    }
+
+    private long readId(AtomicLong cursor) {
+        return seededIds[(int) Math.floorMod(cursor.incrementAndGet(), (long) SEEDED_USERS / 2)];
+    }
+
+    private Measurement measure(Budget budget, Map<String, Double> baseline, Runnable operation) {
+        assertTrue(WARMUP + ITERATIONS <= SEEDED_USERS / 2, "perf.users is too small for the iteration count");
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long[] samples = new long[ITERATIONS];
+        long statements = 0;
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            StatementCounter.reset();
+            long start = System.nanoTime();
+            operation.run();
+            samples[i] = System.nanoTime() - start;
+            statements = Math.max(statements, StatementCounter.count());
+        }
+        long allocatedPerOp = (THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore) / ITERATIONS;
+
+        Arrays.sort(samples);
+        double p50 = samples[ITERATIONS / 2] / 1e6;
+        double p99 = samples[Math.min(ITERATIONS - 1, (int) Math.ceil(ITERATIONS * 0.99) - 1)] / 1e6;
+        Double baselineP99 = baseline.get(budget.operation());
+
+        List<String> violations = new ArrayList<>();
+        if (statements > budget.maxStatements()) {
+            violations.add("statements " + statements + " > " + budget.maxStatements());
+        }
+        if (allocatedPerOp > budget.maxAllocatedBytes()) {
+            violations.add("allocated " + allocatedPerOp + " B/op > " + budget.maxAllocatedBytes());
+        }
+        if (baselineP99 != null && p99 > baselineP99 * TOLERANCE) {
+            violations.add(String.format("p99 %.3f ms > %.3f ms (baseline %.3f x %.2f)",
+                    p99, baselineP99 * TOLERANCE, baselineP99, TOLERANCE));
+        }
+        Measurement measurement = new Measurement(budget.operation(), statements, budget.maxStatements(),
+                allocatedPerOp, budget.maxAllocatedBytes(), p50, p99, baselineP99, violations);
+        logger.info("{}: {} statements, {} B/op, p50 {} ms, p99 {} ms", measurement.operation(),
+                statements, allocatedPerOp, String.format("%.3f", p50), String.format("%.3f", p99));
+        return measurement;
+    }
+}
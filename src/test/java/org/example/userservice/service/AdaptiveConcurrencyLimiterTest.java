@@ -0,0 +1,135 @@
+package org.example.userservice.service;
+
+import org.example.userservice.util.Deadline;
+import org.example.userservice.util.DeadlineExceededException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static AdaptiveConcurrencyLimiter limiter(int initialLimit, int maxQueue, Duration maxQueueWait) {
+        return new AdaptiveConcurrencyLimiter("test", initialLimit, 1, 10, maxQueue,
+                maxQueueWait, Duration.ofMillis(100));
+    }
+
+    // Занимает все разрешения лимитера, пока не опустится release
+    private static void occupy(ExecutorService executor, AdaptiveConcurrencyLimiter limiter, int permits,
+                               CountDownLatch release) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(permits);
+        for (int i = 0; i < permits; i++) {
+            executor.submit(() -> limiter.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldRejectImmediatelyWhenQueueIsFull() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 0, Duration.ofSeconds(5));
+        ExecutorService executor = Executors.newCachedThreadPool();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            occupy(executor, limiter, 1, release);
+
+            ServiceOverloadedException exception = assertThrows(ServiceOverloadedException.class,
+                    () -> limiter.execute(() -> "rejected"));
+            assertEquals("test", exception.getOperation());
+            assertEquals(1, limiter.stats().rejected());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shouldStopWaitingInQueueAtCallerDeadline() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 5, Duration.ofSeconds(5));
+        ExecutorService executor = Executors.newCachedThreadPool();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            occupy(executor, limiter, 1, release);
+
+            long start = System.nanoTime();
+            assertThrows(DeadlineExceededException.class,
+                    () -> Deadline.within(Duration.ofMillis(50), () -> limiter.execute(() -> "late")));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+            assertEquals(1, limiter.stats().queueTimeouts());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shouldRejectAfterQueueDeadline() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 5, Duration.ofMillis(50));
+        ExecutorService executor = Executors.newCachedThreadPool();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            occupy(executor, limiter, 1, release);
+
+            long start = System.nanoTime();
+            assertThrows(ServiceOverloadedException.class, () -> limiter.execute(() -> "late"));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000);
+            assertEquals(1, limiter.stats().queueTimeouts());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shouldAdmitQueuedCallWhenPermitIsReleased() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 5, Duration.ofSeconds(5));
+        ExecutorService executor = Executors.newCachedThreadPool();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            occupy(executor, limiter, 1, release);
+            Future<String> queued = executor.submit(() -> limiter.execute(() -> "done"));
+
+            Thread.sleep(50);
+            release.countDown();
+
+            assertEquals("done", queued.get(5, TimeUnit.SECONDS));
+            AdaptiveConcurrencyLimiter.Stats stats = limiter.stats();
+            assertEquals(2, stats.admitted());
+            assertTrue(stats.maxQueueMillis() >= 40);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shouldShrinkLimitOnFailuresButNotOnValidationErrors() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 0, Duration.ZERO);
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(IllegalArgumentException.class, () -> limiter.execute(() -> {
+                throw new IllegalArgumentException("Invalid");
+            }));
+        }
+        assertEquals(8, limiter.stats().limit());
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(RuntimeException.class, () -> limiter.execute(() -> {
+                throw new RuntimeException("Failed to find user");
+            }));
+        }
+        assertTrue(limiter.stats().limit() < 8);
+    }
+}
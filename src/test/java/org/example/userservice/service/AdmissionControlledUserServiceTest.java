@@ -0,0 +1,118 @@
+package org.example.userservice.service;
+
+import org.example.userservice.dao.UserDao;
+import org.example.userservice.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AdmissionControlledUserServiceTest {
+
+    @Test
+    void shouldShedReadsWithoutBlockingOtherOperations() throws Exception {
+        UserDao userDao = mock(UserDao.class);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userDao.findById(1L)).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await();
+            return Optional.of(new User("Slow", "slow@example.com", 25));
+        });
+        when(userDao.findAll()).thenReturn(List.of());
+
+        AdmissionControlledUserService service = new AdmissionControlledUserService(userDao,
+                operation -> new AdaptiveConcurrencyLimiter(operation.name(), 1, 1, 1, 0,
+                        Duration.ZERO, Duration.ofSeconds(1)));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<User>> slow = executor.submit(() -> service.getUserById(1L));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            ServiceOverloadedException exception = assertThrows(ServiceOverloadedException.class,
+                    () -> service.getUserById(2L));
+            assertEquals("READ", exception.getOperation());
+            // Лимиты раздельные: список не ждёт медленных чтений
+            assertTrue(service.getAllUsers().isEmpty());
+
+            release.countDown();
+            assertTrue(slow.get(5, TimeUnit.SECONDS).isPresent());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        assertEquals(1, service.stats().get(AdmissionControlledUserService.Operation.READ).rejected());
+        assertEquals(0, service.stats().get(AdmissionControlledUserService.Operation.LIST).rejected());
+        verify(userDao, never()).findById(2L);
+    }
+
+    @Test
+    void shouldCapAllOperationsByDatabaseLimitAndHoldItForStreams() {
+        UserDao userDao = mock(UserDao.class);
+        when(userDao.findAll()).thenReturn(List.of());
+        // Поток, который ничего не отдаёт, пока его не отменят
+        when(userDao.streamAll()).thenReturn(subscriber -> subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        }));
+
+        AdmissionControlledUserService service = new AdmissionControlledUserService(userDao,
+                operation -> new AdaptiveConcurrencyLimiter(operation.name(), 5, 1, 5, 0,
+                        Duration.ZERO, Duration.ofSeconds(1)),
+                new AdaptiveConcurrencyLimiter("DATABASE", 1, 1, 1, 0, Duration.ZERO, Duration.ofSeconds(1)));
+
+        List<Flow.Subscription> subscriptions = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        Flow.Subscriber<User> subscriber = new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscriptions.add(subscription);
+            }
+
+            @Override
+            public void onNext(User item) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                errors.add(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        };
+
+        service.streamAllUsers().subscribe(subscriber);
+        assertEquals(1, service.databaseStats().inFlight());
+
+        // Общий лимит занят подпиской: другие операции и второй поток отклоняются
+        ServiceOverloadedException exception = assertThrows(ServiceOverloadedException.class,
+                () -> service.getUserById(1L));
+        assertEquals("DATABASE", exception.getOperation());
+        service.streamAllUsers().subscribe(subscriber);
+        assertInstanceOf(ServiceOverloadedException.class, errors.get(0));
+
+        subscriptions.get(0).cancel();
+        assertEquals(0, service.databaseStats().inFlight());
+        assertEquals(0, service.stats().get(AdmissionControlledUserService.Operation.LIST).inFlight());
+        assertTrue(service.getAllUsers().isEmpty());
+    }
+}
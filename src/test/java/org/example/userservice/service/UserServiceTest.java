@@ -1,7 +1,12 @@
 package org.example.userservice.service;
 
+import org.example.userservice.dao.TransactionRetry;
 import org.example.userservice.dao.UserDao;
 import org.example.userservice.model.User;
+import org.example.userservice.model.UserPatch;
+import org.example.userservice.model.UserSummary;
+import org.example.userservice.util.Deadline;
+import org.example.userservice.util.DeadlineExceededException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,13 +15,22 @@ import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -54,6 +68,17 @@ class UserServiceTest {
         verify(userDao).save(any(User.class));
     }
 
+    @Test
+    void shouldNormalizeEmailOnCreate() {
+        when(userDao.findByEmail("john@example.com")).thenReturn(Optional.empty());
+        when(userDao.save(any(User.class))).thenReturn(1L);
+
+        userService.createUser("John Doe", " John@Example.COM ", 25);
+
+        verify(userDao).findByEmail("john@example.com");
+        verify(userDao).save(argThat(user -> "john@example.com".equals(user.getEmail())));
+    }
+
     @Test
     void shouldThrowExceptionWhenEmailAlreadyExists() {
         String name = "John Doe";
@@ -272,6 +297,36 @@ class UserServiceTest {
         assertEquals("ID must be a positive number", exception2.getMessage());
     }
 
+    // ============ GET USERS BY IDS TESTS ============
+
+    @Test
+    void shouldGetUsersByIdsPreservingOrderAndReportingMissing() {
+        User first = new User("First", "first@example.com", 25);
+        first.setId(1L);
+        User third = new User("Third", "third@example.com", 35);
+        third.setId(3L);
+
+        when(userDao.findAllById(any())).thenReturn(List.of(first, third));
+
+        UsersByIdResult result = userService.getUsersByIds(List.of(3L, 2L, 1L, 3L));
+
+        assertEquals(List.of(third, first), result.users());
+        assertEquals(List.of(2L), result.missingIds());
+        verify(userDao, times(1)).findAllById(any());
+        verify(userDao, never()).findById(any());
+    }
+
+    @Test
+    void shouldThrowExceptionWhenIdsContainInvalidId() {
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> userService.getUsersByIds(List.of(1L, 0L))
+        );
+
+        assertEquals("ID must be a positive number", exception.getMessage());
+        verify(userDao, never()).findAllById(any());
+    }
+
     // ============ GET ALL USERS TESTS ============
 
     @Test
@@ -299,6 +354,54 @@ class UserServiceTest {
         verify(userDao).findAll();
     }
 
+    // ============ USER SUMMARIES TESTS ============
+
+    @Test
+    void shouldGetUserSummariesPage() {
+        List<UserSummary> page = List.of(new UserSummary(11L, "User11", "user11@example.com"));
+        when(userDao.findSummariesAfter(10L, 50)).thenReturn(page);
+
+        List<UserSummary> result = userService.getUserSummaries(10L, 50);
+
+        assertEquals(page, result);
+        verify(userDao, never()).findAll();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, -1, 1001})
+    void shouldThrowExceptionWhenPageSizeIsInvalid(int limit) {
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> userService.getUserSummaries(null, limit)
+        );
+
+        assertTrue(exception.getMessage().contains("Page size must be between 1 and 1000"));
+        verify(userDao, never()).findSummariesAfter(any(), anyInt());
+    }
+
+    // ============ CREATED RANGE TESTS ============
+
+    @Test
+    void shouldGetUsersCreatedBetween() {
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 2, 1, 0, 0);
+        User user = new User("January", "january@example.com", 25);
+        when(userDao.findByCreatedBetween(from, to)).thenReturn(List.of(user));
+        when(userDao.countByCreatedBetween(from, to)).thenReturn(1L);
+
+        assertEquals(List.of(user), userService.getUsersCreatedBetween(from, to));
+        assertEquals(1L, userService.countUsersCreatedBetween(from, to));
+    }
+
+    @Test
+    void shouldThrowExceptionWhenCreatedRangeIsInvalid() {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersCreatedBetween(now, now));
+        assertThrows(IllegalArgumentException.class, () -> userService.countUsersCreatedBetween(null, now));
+        verifyNoInteractions(userDao);
+    }
+
     // ============ UPDATE USER TESTS ============
 
     @Test
@@ -309,14 +412,54 @@ class UserServiceTest {
 
         when(userDao.findById(userId)).thenReturn(Optional.of(existingUser));
         when(userDao.findByEmail("new@example.com")).thenReturn(Optional.empty());
+        when(userDao.updateAll(anyMap())).thenReturn(Set.of(userId));
 
         boolean result = userService.updateUser(userId, "New Name", "new@example.com", 30);
 
         assertTrue(result);
-        verify(userDao).update(existingUser);
-        assertEquals("New Name", existingUser.getName());
-        assertEquals("new@example.com", existingUser.getEmail());
-        assertEquals(30, existingUser.getAge());
+        verify(userDao).updateAll(Map.of(userId, new UserPatch("New Name", "new@example.com", 30)));
+        verify(userDao, never()).update(any(User.class));
+    }
+
+    @Test
+    void shouldReportFalseWhenUserDisappearsBeforeUpdate() {
+        User existingUser = new User("Old Name", "old@example.com", 25);
+        existingUser.setId(1L);
+        when(userDao.findById(1L)).thenReturn(Optional.of(existingUser));
+        when(userDao.updateAll(anyMap())).thenReturn(Set.of());
+
+        assertFalse(userService.updateUser(1L, "New Name", null, null));
+    }
+
+    @Test
+    void shouldRetryWholeUpdateOnSerializationFailure() {
+        UserService retryingService = new UserService(userDao, null, Map.of(),
+                new TransactionRetry(3, Duration.ofMillis(1), Duration.ofMillis(5)));
+        User existingUser = new User("Old Name", "old@example.com", 25);
+        existingUser.setId(1L);
+        when(userDao.findById(1L)).thenReturn(Optional.of(existingUser));
+        when(userDao.updateAll(anyMap()))
+                .thenThrow(new RuntimeException("Failed to update users",
+                        new SQLException("could not serialize access due to concurrent update", "40001")))
+                .thenReturn(Set.of(1L));
+
+        assertTrue(retryingService.updateUser(1L, "New Name", null, null));
+
+        // Повторяется вся единица работы: и чтение, и запись
+        verify(userDao, times(2)).findById(1L);
+        verify(userDao, times(2)).updateAll(anyMap());
+    }
+
+    @Test
+    void shouldNotRetryPermanentFailureOfUpdate() {
+        User existingUser = new User("Old Name", "old@example.com", 25);
+        existingUser.setId(1L);
+        when(userDao.findById(1L)).thenReturn(Optional.of(existingUser));
+        when(userDao.updateAll(anyMap()))
+                .thenThrow(new RuntimeException("Failed to update users", new SQLException("duplicate key", "23505")));
+
+        assertThrows(RuntimeException.class, () -> userService.updateUser(1L, "New Name", null, null));
+        verify(userDao, times(1)).updateAll(anyMap());
     }
 
     @Test
@@ -326,13 +469,12 @@ class UserServiceTest {
         existingUser.setId(userId);
 
         when(userDao.findById(userId)).thenReturn(Optional.of(existingUser));
+        when(userDao.updateAll(anyMap())).thenReturn(Set.of(userId));
 
         boolean result = userService.updateUser(userId, "New Name", null, null);
 
         assertTrue(result);
-        assertEquals("New Name", existingUser.getName());
-        assertEquals("old@example.com", existingUser.getEmail());
-        assertEquals(25, existingUser.getAge());
+        verify(userDao).updateAll(Map.of(userId, new UserPatch("New Name", null, null)));
     }
 
     @Test
@@ -342,13 +484,12 @@ class UserServiceTest {
         existingUser.setId(userId);
 
         when(userDao.findById(userId)).thenReturn(Optional.of(existingUser));
+        when(userDao.updateAll(anyMap())).thenReturn(Set.of(userId));
 
         boolean result = userService.updateUser(userId, null, null, 30);
 
         assertTrue(result);
-        assertEquals("John Doe", existingUser.getName());
-        assertEquals("john@example.com", existingUser.getEmail());
-        assertEquals(30, existingUser.getAge());
+        verify(userDao).updateAll(Map.of(userId, new UserPatch(null, null, 30)));
     }
 
     @Test
@@ -358,14 +499,14 @@ class UserServiceTest {
         existingUser.setId(userId);
 
         when(userDao.findById(userId)).thenReturn(Optional.of(existingUser));
+        when(userDao.updateAll(anyMap())).thenReturn(Set.of(userId));
 
         boolean result = userService.updateUser(userId, "New Name", "john@example.com", 30);
 
         assertTrue(result);
         verify(userDao, never()).findByEmail(anyString());
-        assertEquals("New Name", existingUser.getName());
-        assertEquals("john@example.com", existingUser.getEmail());
-        assertEquals(30, existingUser.getAge());
+        // Неизменившийся email в изменение не попадает
+        verify(userDao).updateAll(Map.of(userId, new UserPatch("New Name", null, 30)));
     }
 
     @Test
@@ -386,7 +527,7 @@ class UserServiceTest {
         );
 
         assertEquals("Email already exists", exception.getMessage());
-        verify(userDao, never()).update(any(User.class));
+        verify(userDao, never()).updateAll(anyMap());
     }
 
     @Test
@@ -397,7 +538,7 @@ class UserServiceTest {
         boolean result = userService.updateUser(userId, "New Name", "new@example.com", 30);
 
         assertFalse(result);
-        verify(userDao, never()).update(any(User.class));
+        verify(userDao, never()).updateAll(anyMap());
     }
 
     @Test
@@ -414,7 +555,42 @@ class UserServiceTest {
         );
 
         assertTrue(exception.getMessage().contains("Name must contain between 2 and 100 characters"));
-        verify(userDao, never()).update(any(User.class));
+        verify(userDao, never()).updateAll(anyMap());
+    }
+
+    // ============ BULK UPDATE TESTS ============
+
+    @Test
+    void shouldUpdateUsersInOneCallAndReportMissing() {
+        Map<Long, UserPatch> patches = new LinkedHashMap<>();
+        patches.put(3L, new UserPatch(null, " New@Example.com ", 40));
+        patches.put(2L, new UserPatch("Renamed", null, null));
+        patches.put(1L, new UserPatch(null, null, 30));
+        when(userDao.updateAll(any())).thenReturn(Set.of(1L, 3L));
+
+        UsersUpdateResult result = userService.updateUsers(patches);
+
+        assertEquals(List.of(3L, 1L), result.updatedIds());
+        assertEquals(List.of(2L), result.missingIds());
+        verify(userDao, times(1)).updateAll(argThat(sent ->
+                sent.get(3L).equals(new UserPatch(null, "new@example.com", 40))));
+        verify(userDao, never()).findById(any());
+        verify(userDao, never()).update(any());
+    }
+
+    @Test
+    void shouldRejectWholeBatchWhenAnyPatchIsInvalid() {
+        Map<Long, UserPatch> patches = Map.of(
+                1L, new UserPatch("Valid Name", null, null),
+                2L, new UserPatch(null, null, 150));
+
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> userService.updateUsers(patches)
+        );
+
+        assertEquals("Age cannot exceed 120 years. Received: 150", exception.getMessage());
+        verify(userDao, never()).updateAll(any());
     }
 
     // ============ DELETE USER TESTS ============
@@ -465,4 +641,31 @@ class UserServiceTest {
         assertEquals("ID cannot be null", exception.getMessage());
         verify(userDao, never()).delete(any());
     }
-}
\ No newline at end of file
+
+    // ============ DEADLINE TESTS ============
+
+    @Test
+    void shouldReportCanceledQueryAsDeadlineExceeded() {
+        UserService timedService = new UserService(userDao, Duration.ofSeconds(5),
+                Map.of("getUserById", Duration.ofMillis(100)));
+        when(userDao.findById(1L)).thenThrow(new RuntimeException("Failed to find user",
+                new SQLException("canceling statement due to statement timeout", "57014")));
+
+        DeadlineExceededException exception = assertThrows(DeadlineExceededException.class,
+                () -> timedService.getUserById(1L));
+
+        assertEquals(Duration.ofMillis(100), exception.getBudget());
+    }
+
+    @Test
+    void shouldApplyDefaultDeadlineToDaoCalls() {
+        UserService timedService = new UserService(userDao, Duration.ofSeconds(5), Map.of());
+        when(userDao.findAll()).thenAnswer(invocation -> {
+            assertTrue(Deadline.isActive());
+            return List.of();
+        });
+
+        assertTrue(timedService.getAllUsers().isEmpty());
+        assertFalse(Deadline.isActive());
+    }
+}
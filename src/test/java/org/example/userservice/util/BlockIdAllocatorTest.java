@@ -0,0 +1,81 @@
+package org.example.userservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockIdAllocatorTest {
+
+    // Имитация последовательности с шагом increment, общей для нескольких экземпляров
+    private static BlockIdAllocator.BlockSource sequence(AtomicLong value, long increment) {
+        return () -> new BlockIdAllocator.Range(value.getAndAdd(increment), increment);
+    }
+
+    @Test
+    void shouldHandOutConsecutiveIdsAndFetchOneBlockPerSize() {
+        AtomicLong value = new AtomicLong(1);
+        BlockIdAllocator allocator = new BlockIdAllocator(10);
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            ids.add(allocator.next(sequence(value, 10)));
+        }
+
+        assertEquals(1L, ids.get(0));
+        assertEquals(25L, ids.get(24));
+        assertEquals(3, allocator.stats().blocksFetched());
+        assertEquals(25, allocator.stats().allocated());
+    }
+
+    @Test
+    void shouldNotExceedSequenceIncrement() {
+        AtomicLong value = new AtomicLong(1);
+        BlockIdAllocator allocator = new BlockIdAllocator(100);
+
+        for (int i = 0; i < 12; i++) {
+            allocator.next(sequence(value, 5));
+        }
+
+        assertEquals(3, allocator.stats().blocksFetched());
+        assertEquals(5, allocator.stats().blockSize());
+        assertThrows(IllegalArgumentException.class, () -> new BlockIdAllocator(0));
+    }
+
+    @Test
+    void shouldNeverRepeatIdsAcrossThreadsAndInstances() throws Exception {
+        AtomicLong value = new AtomicLong(1);
+        BlockIdAllocator first = new BlockIdAllocator(7);
+        BlockIdAllocator second = new BlockIdAllocator(7);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                BlockIdAllocator allocator = t % 2 == 0 ? first : second;
+                futures.add(executor.submit(() -> {
+                    List<Long> ids = new ArrayList<>();
+                    for (int i = 0; i < 1_000; i++) {
+                        ids.add(allocator.next(sequence(value, 7)));
+                    }
+                    return ids;
+                }));
+            }
+
+            Set<Long> unique = new HashSet<>();
+            for (Future<List<Long>> future : futures) {
+                unique.addAll(future.get());
+            }
+            assertEquals(8_000, unique.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
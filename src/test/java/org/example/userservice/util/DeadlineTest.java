@@ -0,0 +1,59 @@
+package org.example.userservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineTest {
+
+    @Test
+    void shouldKeepStricterOuterDeadline() {
+        assertFalse(Deadline.isActive());
+        assertEquals(Long.MAX_VALUE, Deadline.remaining());
+
+        Deadline.run(Duration.ofMillis(200), () -> {
+            long outer = Deadline.remaining();
+            Deadline.run(Duration.ofMinutes(1), () -> assertTrue(Deadline.remaining() <= outer));
+            Deadline.run(Duration.ofMillis(10), () -> assertTrue(Deadline.remaining() <= TimeUnit.MILLISECONDS.toNanos(10)));
+            assertTrue(Deadline.remaining() > TimeUnit.MILLISECONDS.toNanos(10));
+        });
+
+        assertFalse(Deadline.isActive());
+    }
+
+    @Test
+    void shouldTranslateQueryCancellationAndExpiry() {
+        // 57014 — query_canceled: так PostgreSQL отменяет запрос по statement_timeout
+        RuntimeException canceled = new RuntimeException("Failed to find user",
+                new SQLException("canceling statement due to statement timeout", "57014"));
+        DeadlineExceededException timeout = assertThrows(DeadlineExceededException.class,
+                () -> Deadline.run(Duration.ofSeconds(1), () -> {
+                    throw canceled;
+                }));
+        assertSame(canceled, timeout.getCause());
+        assertEquals(Duration.ofSeconds(1), timeout.getBudget());
+
+        assertThrows(DeadlineExceededException.class, () -> Deadline.run(Duration.ofMillis(5), () -> {
+            sleep(20);
+            Deadline.check("next step");
+        }));
+
+        IllegalArgumentException other = new IllegalArgumentException("bad input");
+        assertSame(other, assertThrows(IllegalArgumentException.class,
+                () -> Deadline.run(Duration.ofSeconds(1), () -> {
+                    throw other;
+                })));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
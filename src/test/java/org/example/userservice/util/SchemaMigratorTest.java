@@ -0,0 +1,34 @@
+package org.example.userservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigratorTest {
+
+    @Test
+    void shouldListMigrationsInStrictlyAscendingVersionOrder() {
+        int previous = 0;
+        for (String fileName : SchemaMigrator.MIGRATIONS) {
+            SchemaMigrator.Migration migration = SchemaMigrator.load(fileName);
+            assertTrue(migration.version() > previous, "Out of order: " + fileName);
+            assertFalse(migration.script().isBlank());
+            previous = migration.version();
+        }
+    }
+
+    @Test
+    void shouldComputeStableChecksum() {
+        SchemaMigrator.Migration first = SchemaMigrator.load("V1__baseline.sql");
+        SchemaMigrator.Migration second = SchemaMigrator.load("V1__baseline.sql");
+
+        assertEquals(1, first.version());
+        assertEquals("baseline", first.description());
+        assertEquals(first.checksum(), second.checksum());
+    }
+
+    @Test
+    void shouldRejectInvalidFileName() {
+        assertThrows(IllegalArgumentException.class, () -> SchemaMigrator.load("baseline.sql"));
+    }
+}